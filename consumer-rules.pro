@@ -0,0 +1,2 @@
+# RecyclerView is a compileOnly dependency, only needed by apps which anchor tooltips to list items
+-dontwarn androidx.recyclerview.widget.**
@@ -0,0 +1,125 @@
+package tool.compet.tooltip.geometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placement and bubble outline cost of a screen with 1 to 10k tooltips.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementBenchmark {
+	private static final int SCREEN_WIDTH = 1080;
+	private static final int SCREEN_HEIGHT = 2340;
+	private static final int DISTANCE_WITH_VIEW = 0;
+
+	@Param({"1", "10", "100", "1000", "10000"})
+	public int tooltipCount;
+
+	private IntRect[] anchors;
+	private IntRect[] scratchAnchors;
+	private int[] widths;
+	private int[] heights;
+	private PlacementSolver.Position[] positions;
+	private PlacementSolver.Align[] aligns;
+	private BubbleSpec[] specs;
+	private final IntRect bounds = new IntRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+	private final Placement placement = new Placement();
+	private final PathCommands commands = new PathCommands();
+	private final float[] body = new float[4];
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(42);
+		final PlacementSolver.Position[] allPositions = PlacementSolver.Position.values();
+		final PlacementSolver.Align[] allAligns = PlacementSolver.Align.values();
+
+		anchors = new IntRect[tooltipCount];
+		scratchAnchors = new IntRect[tooltipCount];
+		widths = new int[tooltipCount];
+		heights = new int[tooltipCount];
+		positions = new PlacementSolver.Position[tooltipCount];
+		aligns = new PlacementSolver.Align[tooltipCount];
+		specs = new BubbleSpec[tooltipCount];
+
+		for (int index = 0; index < tooltipCount; ++index) {
+			final int left = random.nextInt(SCREEN_WIDTH - 100);
+			final int top = random.nextInt(SCREEN_HEIGHT - 100);
+			anchors[index] = new IntRect(left, top, left + 40 + random.nextInt(60), top + 40 + random.nextInt(60));
+			scratchAnchors[index] = new IntRect();
+			widths[index] = 200 + random.nextInt(800);
+			heights[index] = 80 + random.nextInt(200);
+			positions[index] = allPositions[random.nextInt(allPositions.length)];
+			aligns[index] = allAligns[random.nextInt(allAligns.length)];
+
+			final BubbleSpec spec = new BubbleSpec();
+			spec.width = widths[index];
+			spec.height = heights[index];
+			spec.shadowPadding = 4;
+			spec.corner = 30;
+			spec.arrowWidth = 15;
+			spec.arrowHeight = 15;
+			spec.position = positions[index];
+			spec.arrowOffset = spec.width / 2f;
+			spec.marginLeft = spec.marginTop = spec.marginRight = spec.marginBottom = 8;
+			specs[index] = spec;
+		}
+	}
+
+	@Benchmark
+	public void solvePlacement(Blackhole blackhole) {
+		for (int index = 0; index < tooltipCount; ++index) {
+			final IntRect anchor = scratchAnchors[index].set(anchors[index]);
+			PlacementSolver.solve(positions[index], aligns[index], anchor, SCREEN_WIDTH,
+				widths[index], heights[index], DISTANCE_WITH_VIEW, placement);
+			blackhole.consume(placement.x);
+			blackhole.consume(placement.y);
+		}
+	}
+
+	@Benchmark
+	public void solveAutoPlacement(Blackhole blackhole) {
+		for (int index = 0; index < tooltipCount; ++index) {
+			PlacementSolver.solveAuto(anchors[index], bounds, widths[index], heights[index], 15,
+				DISTANCE_WITH_VIEW, positions[index], placement);
+			blackhole.consume(placement.x);
+			blackhole.consume(placement.y);
+		}
+	}
+
+	/**
+	 * Place tooltips one by one, each avoiding previously placed ones, as a window showing many hints does.
+	 */
+	@Benchmark
+	public void solveAutoPlacementAvoidingCollisions(Blackhole blackhole) {
+		final OccupancyGrid occupancy = new OccupancyGrid(128);
+		for (int index = 0; index < tooltipCount; ++index) {
+			final IntRect anchor = anchors[index];
+			PlacementSolver.solveAuto(anchor, bounds, occupancy, widths[index], heights[index], 15,
+				DISTANCE_WITH_VIEW, positions[index], placement);
+			occupancy.add(placement.x, placement.y, placement.x + placement.width, placement.y + placement.height);
+			occupancy.add(anchor.left, anchor.top, anchor.right, anchor.bottom);
+		}
+		blackhole.consume(occupancy.size());
+	}
+
+	@Benchmark
+	public void buildBubbleShape(Blackhole blackhole) {
+		for (int index = 0; index < tooltipCount; ++index) {
+			BubbleShapeBuilder.build(specs[index], commands, body);
+			blackhole.consume(commands.size());
+			blackhole.consume(body[2]);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Builds outline of a tooltip bubble (rounded body with an arrow) as path commands.
+ */
+public final class BubbleShapeBuilder {
+	private BubbleShapeBuilder() {
+	}
+
+	/**
+	 * @param out Receives commands of the outline, it is reset before building.
+	 * @param outBody Receives body rect (without arrow) as [left, top, right, bottom].
+	 */
+	public static void build(BubbleSpec spec, PathCommands out, float[] outBody) {
+		out.reset();
+
+		final PlacementSolver.Position position = spec.position;
+		final float corner = spec.corner < 0 ? 0 : spec.corner;
+		final float topLeftDiameter = corner;
+		final float topRightDiameter = corner;
+		final float bottomRightDiameter = corner;
+		final float bottomLeftDiameter = corner;
+
+		final float rectLeft = spec.shadowPadding;
+		final float rectTop = spec.shadowPadding;
+		final float rectRight = spec.width - spec.shadowPadding * 2f;
+		final float rectBottom = spec.height - spec.shadowPadding * 2f;
+
+		final float spacingLeft = position == PlacementSolver.Position.RIGHT ? spec.arrowHeight : spec.marginLeft;
+		final float spacingTop = position == PlacementSolver.Position.BOTTOM ? spec.arrowHeight : spec.marginTop;
+		final float spacingRight = position == PlacementSolver.Position.LEFT ? spec.arrowHeight : spec.marginRight;
+		final float spacingBottom = position == PlacementSolver.Position.TOP ? spec.arrowHeight : spec.marginBottom;
+
+		final float left = spacingLeft + rectLeft;
+		final float top = spacingTop + rectTop;
+		final float right = rectRight - spacingRight;
+		final float bottom = rectBottom - spacingBottom;
+		final float centerX = spec.arrowOffset;
+		final float arrowWidth = spec.arrowWidth;
+
+		final boolean vertical = position == PlacementSolver.Position.TOP || position == PlacementSolver.Position.BOTTOM;
+		final float arrowSourceX = vertical ? centerX + spec.arrowSourceMargin : centerX;
+		final float arrowTargetX = vertical ? centerX + spec.arrowTargetMargin : centerX;
+		final float arrowSourceY = !vertical ? bottom / 2f - spec.arrowSourceMargin : bottom / 2f;
+		final float arrowTargetY = !vertical ? bottom / 2f - spec.arrowTargetMargin : bottom / 2f;
+
+		out.moveTo(left + topLeftDiameter / 2f, top);
+		//LEFT, TOP
+
+		if (position == PlacementSolver.Position.BOTTOM) {
+			out.lineTo(arrowSourceX - arrowWidth, top);
+			out.lineTo(arrowTargetX, rectTop);
+			out.lineTo(arrowSourceX + arrowWidth, top);
+		}
+		out.lineTo(right - topRightDiameter / 2f, top);
+
+		out.quadTo(right, top, right, top + topRightDiameter / 2);
+		//RIGHT, TOP
+
+		if (position == PlacementSolver.Position.LEFT) {
+			out.lineTo(right, arrowSourceY - arrowWidth);
+			out.lineTo(rectRight, arrowTargetY);
+			out.lineTo(right, arrowSourceY + arrowWidth);
+		}
+		out.lineTo(right, bottom - bottomRightDiameter / 2);
+
+		out.quadTo(right, bottom, right - bottomRightDiameter / 2, bottom);
+		//RIGHT, BOTTOM
+
+		if (position == PlacementSolver.Position.TOP) {
+			out.lineTo(arrowSourceX + arrowWidth, bottom);
+			out.lineTo(arrowTargetX, rectBottom);
+			out.lineTo(arrowSourceX - arrowWidth, bottom);
+		}
+		out.lineTo(left + bottomLeftDiameter / 2, bottom);
+
+		out.quadTo(left, bottom, left, bottom - bottomLeftDiameter / 2);
+		//LEFT, BOTTOM
+
+		if (position == PlacementSolver.Position.RIGHT) {
+			out.lineTo(left, arrowSourceY + arrowWidth);
+			out.lineTo(rectLeft, arrowTargetY);
+			out.lineTo(left, arrowSourceY - arrowWidth);
+		}
+		out.lineTo(left, top + topLeftDiameter / 2);
+
+		out.quadTo(left, top, left + topLeftDiameter / 2, top);
+
+		out.close();
+
+		outBody[0] = left;
+		outBody[1] = top;
+		outBody[2] = right;
+		outBody[3] = bottom;
+	}
+}
@@ -0,0 +1,21 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Input of {@link BubbleShapeBuilder}, describes size, corner, arrow and margins of a bubble.
+ */
+public final class BubbleSpec {
+	public int width;
+	public int height;
+	public int shadowPadding;
+	public int corner;
+	public int arrowWidth;
+	public int arrowHeight;
+	public int arrowSourceMargin;
+	public int arrowTargetMargin;
+	public PlacementSolver.Position position;
+	public float arrowOffset;
+	public int marginLeft;
+	public int marginTop;
+	public int marginRight;
+	public int marginBottom;
+}
@@ -0,0 +1,59 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Mutable int rectangle, same semantic as android.graphics.Rect (right and bottom are exclusive).
+ */
+public final class IntRect {
+	public int left;
+	public int top;
+	public int right;
+	public int bottom;
+
+	public IntRect() {
+	}
+
+	public IntRect(int left, int top, int right, int bottom) {
+		set(left, top, right, bottom);
+	}
+
+	public IntRect set(int left, int top, int right, int bottom) {
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+		return this;
+	}
+
+	public IntRect set(IntRect other) {
+		return set(other.left, other.top, other.right, other.bottom);
+	}
+
+	public int width() {
+		return right - left;
+	}
+
+	public int height() {
+		return bottom - top;
+	}
+
+	public int centerX() {
+		return (left + right) >> 1;
+	}
+
+	public int centerY() {
+		return (top + bottom) >> 1;
+	}
+
+	public boolean isEmpty() {
+		return left >= right || top >= bottom;
+	}
+
+	public boolean intersects(int left, int top, int right, int bottom) {
+		return this.left < right && left < this.right && this.top < bottom && top < this.bottom;
+	}
+
+	@Override
+	public String toString() {
+		return "IntRect(" + left + ", " + top + ", " + right + ", " + bottom + ")";
+	}
+}
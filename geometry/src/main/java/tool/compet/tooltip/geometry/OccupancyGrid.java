@@ -0,0 +1,269 @@
+package tool.compet.tooltip.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of occupied rectangles (placed tooltips, their anchors...), backed by a uniform grid
+ * of square cells. Each rectangle is registered in the cells it covers, so adding, removing and
+ * querying a rectangle only touch those cells, independent of how many rectangles are in the grid.
+ */
+public final class OccupancyGrid {
+	/**
+	 * Handle which is never given out, removing it does nothing.
+	 */
+	public static final int NO_HANDLE = -1;
+
+	private final int cellSize;
+
+	// Rectangles by handle
+	private int[] lefts = new int[16];
+	private int[] tops = new int[16];
+	private int[] rights = new int[16];
+	private int[] bottoms = new int[16];
+	private boolean[] alive = new boolean[16];
+	// Last query which visited the rectangle, to count each rectangle once per query
+	private int[] visitStamps = new int[16];
+	private int handleCount;
+	private int[] freeHandles = new int[16];
+	private int freeCount;
+	private int size;
+	private int queryStamp;
+
+	// Cells by packed (column, row) key, open addressing with linear probing
+	private long[] cellKeys = new long[64];
+	private Cell[] cells = new Cell[64];
+	private int cellCount;
+
+	private static final class Cell {
+		int[] handles = new int[4];
+		int size;
+
+		void add(int handle) {
+			if (size == handles.length) {
+				handles = Arrays.copyOf(handles, size << 1);
+			}
+			handles[size++] = handle;
+		}
+
+		void remove(int handle) {
+			for (int index = 0; index < size; ++index) {
+				if (handles[index] == handle) {
+					handles[index] = handles[--size];
+					return;
+				}
+			}
+		}
+	}
+
+	public OccupancyGrid(int cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+		}
+		this.cellSize = cellSize;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Handle of added rectangle, used to update or remove it.
+	 */
+	public int add(int left, int top, int right, int bottom) {
+		final int handle = obtainHandle();
+		lefts[handle] = left;
+		tops[handle] = top;
+		rights[handle] = right;
+		bottoms[handle] = bottom;
+		alive[handle] = true;
+		++size;
+
+		if (left < right && top < bottom) {
+			final int firstColumn = cellOf(left);
+			final int lastColumn = cellOf(right - 1);
+			final int firstRow = cellOf(top);
+			final int lastRow = cellOf(bottom - 1);
+			for (int row = firstRow; row <= lastRow; ++row) {
+				for (int column = firstColumn; column <= lastColumn; ++column) {
+					obtainCell(column, row).add(handle);
+				}
+			}
+		}
+		return handle;
+	}
+
+	public void remove(int handle) {
+		if (handle < 0 || handle >= handleCount || !alive[handle]) {
+			return;
+		}
+		final int left = lefts[handle];
+		final int top = tops[handle];
+		final int right = rights[handle];
+		final int bottom = bottoms[handle];
+
+		if (left < right && top < bottom) {
+			final int firstColumn = cellOf(left);
+			final int lastColumn = cellOf(right - 1);
+			final int firstRow = cellOf(top);
+			final int lastRow = cellOf(bottom - 1);
+			for (int row = firstRow; row <= lastRow; ++row) {
+				for (int column = firstColumn; column <= lastColumn; ++column) {
+					final Cell cell = findCell(column, row);
+					if (cell != null) {
+						cell.remove(handle);
+					}
+				}
+			}
+		}
+
+		alive[handle] = false;
+		--size;
+		if (freeCount == freeHandles.length) {
+			freeHandles = Arrays.copyOf(freeHandles, freeCount << 1);
+		}
+		freeHandles[freeCount++] = handle;
+	}
+
+	/**
+	 * @return New handle of the rectangle (it may differ from given handle).
+	 */
+	public int update(int handle, int left, int top, int right, int bottom) {
+		remove(handle);
+		return add(left, top, right, bottom);
+	}
+
+	/**
+	 * @return Sum of intersection areas between given rectangle and occupied rectangles.
+	 */
+	public long overlapArea(int left, int top, int right, int bottom) {
+		if (size == 0 || left >= right || top >= bottom) {
+			return 0;
+		}
+		final int stamp = nextQueryStamp();
+		long area = 0;
+
+		final int firstColumn = cellOf(left);
+		final int lastColumn = cellOf(right - 1);
+		final int firstRow = cellOf(top);
+		final int lastRow = cellOf(bottom - 1);
+		for (int row = firstRow; row <= lastRow; ++row) {
+			for (int column = firstColumn; column <= lastColumn; ++column) {
+				final Cell cell = findCell(column, row);
+				if (cell == null) {
+					continue;
+				}
+				for (int index = 0; index < cell.size; ++index) {
+					final int handle = cell.handles[index];
+					if (visitStamps[handle] == stamp) {
+						continue;
+					}
+					visitStamps[handle] = stamp;
+
+					final long width = Math.min(right, rights[handle]) - Math.max(left, lefts[handle]);
+					final long height = Math.min(bottom, bottoms[handle]) - Math.max(top, tops[handle]);
+					if (width > 0 && height > 0) {
+						area += width * height;
+					}
+				}
+			}
+		}
+		return area;
+	}
+
+	public void clear() {
+		Arrays.fill(alive, false);
+		Arrays.fill(cellKeys, 0);
+		Arrays.fill(cells, null);
+		handleCount = freeCount = size = cellCount = 0;
+	}
+
+	private int nextQueryStamp() {
+		if (++queryStamp == 0) {
+			// Wrapped around, old stamps could match again
+			Arrays.fill(visitStamps, 0);
+			queryStamp = 1;
+		}
+		return queryStamp;
+	}
+
+	private int obtainHandle() {
+		if (freeCount > 0) {
+			return freeHandles[--freeCount];
+		}
+		if (handleCount == lefts.length) {
+			final int capacity = handleCount << 1;
+			lefts = Arrays.copyOf(lefts, capacity);
+			tops = Arrays.copyOf(tops, capacity);
+			rights = Arrays.copyOf(rights, capacity);
+			bottoms = Arrays.copyOf(bottoms, capacity);
+			alive = Arrays.copyOf(alive, capacity);
+			visitStamps = Arrays.copyOf(visitStamps, capacity);
+		}
+		return handleCount++;
+	}
+
+	// Floor division, Math.floorDiv() is not available on older Android
+	private int cellOf(int value) {
+		return value >= 0 ? value / cellSize : -((-value - 1) / cellSize) - 1;
+	}
+
+	private static long cellKey(int column, int row) {
+		return ((long) column << 32) | (row & 0xffffffffL);
+	}
+
+	private int slotOf(long key, int capacity) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 40) & (capacity - 1);
+	}
+
+	private Cell findCell(int column, int row) {
+		final long key = cellKey(column, row);
+		final int mask = cells.length - 1;
+		for (int slot = slotOf(key, cells.length); cells[slot] != null; slot = (slot + 1) & mask) {
+			if (cellKeys[slot] == key) {
+				return cells[slot];
+			}
+		}
+		return null;
+	}
+
+	private Cell obtainCell(int column, int row) {
+		final Cell found = findCell(column, row);
+		if (found != null) {
+			return found;
+		}
+		if ((cellCount + 1) << 1 > cells.length) {
+			rehash(cells.length << 1);
+		}
+		final long key = cellKey(column, row);
+		final int mask = cells.length - 1;
+		int slot = slotOf(key, cells.length);
+		while (cells[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		final Cell cell = new Cell();
+		cellKeys[slot] = key;
+		cells[slot] = cell;
+		++cellCount;
+		return cell;
+	}
+
+	private void rehash(int capacity) {
+		final long[] oldKeys = cellKeys;
+		final Cell[] oldCells = cells;
+		cellKeys = new long[capacity];
+		cells = new Cell[capacity];
+		final int mask = capacity - 1;
+
+		for (int index = 0; index < oldCells.length; ++index) {
+			if (oldCells[index] != null) {
+				int slot = slotOf(oldKeys[index], capacity);
+				while (cells[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				cellKeys[slot] = oldKeys[index];
+				cells[slot] = oldCells[index];
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Reusable list of path commands (moveTo, lineTo, quadTo, close), replayed into a real
+ * path (for eg,. android.graphics.Path) by a {@link Sink}.
+ */
+public final class PathCommands {
+	public interface Sink {
+		void moveTo(float x, float y);
+
+		void lineTo(float x, float y);
+
+		void quadTo(float x1, float y1, float x2, float y2);
+
+		void close();
+	}
+
+	public static final byte MOVE_TO = 0;
+	public static final byte LINE_TO = 1;
+	public static final byte QUAD_TO = 2;
+	public static final byte CLOSE = 3;
+
+	private byte[] ops = new byte[32];
+	private float[] coords = new float[64];
+	private int opCount;
+	private int coordCount;
+
+	public void reset() {
+		opCount = 0;
+		coordCount = 0;
+	}
+
+	public int size() {
+		return opCount;
+	}
+
+	public byte op(int index) {
+		return ops[index];
+	}
+
+	public void moveTo(float x, float y) {
+		add(MOVE_TO, 2);
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	public void lineTo(float x, float y) {
+		add(LINE_TO, 2);
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		add(QUAD_TO, 4);
+		coords[coordCount++] = x1;
+		coords[coordCount++] = y1;
+		coords[coordCount++] = x2;
+		coords[coordCount++] = y2;
+	}
+
+	public void close() {
+		add(CLOSE, 0);
+	}
+
+	private void add(byte op, int coordSize) {
+		if (opCount == ops.length) {
+			final byte[] newOps = new byte[ops.length << 1];
+			System.arraycopy(ops, 0, newOps, 0, opCount);
+			ops = newOps;
+		}
+		if (coordCount + coordSize > coords.length) {
+			final float[] newCoords = new float[coords.length << 1];
+			System.arraycopy(coords, 0, newCoords, 0, coordCount);
+			coords = newCoords;
+		}
+		ops[opCount++] = op;
+	}
+
+	public void replay(Sink sink) {
+		int coordIndex = 0;
+		for (int index = 0; index < opCount; ++index) {
+			switch (ops[index]) {
+				case MOVE_TO: {
+					sink.moveTo(coords[coordIndex], coords[coordIndex + 1]);
+					coordIndex += 2;
+					break;
+				}
+				case LINE_TO: {
+					sink.lineTo(coords[coordIndex], coords[coordIndex + 1]);
+					coordIndex += 2;
+					break;
+				}
+				case QUAD_TO: {
+					sink.quadTo(coords[coordIndex], coords[coordIndex + 1], coords[coordIndex + 2], coords[coordIndex + 3]);
+					coordIndex += 4;
+					break;
+				}
+				case CLOSE: {
+					sink.close();
+					break;
+				}
+			}
+		}
+	}
+}
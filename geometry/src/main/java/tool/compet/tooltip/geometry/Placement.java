@@ -0,0 +1,21 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Result of {@link PlacementSolver#solve}: final translation, size and alignment of a tooltip.
+ */
+public final class Placement {
+	public int x;
+	public int y;
+	public int width;
+	public int height;
+	public PlacementSolver.Position position;
+	public PlacementSolver.Align align;
+	/**
+	 * Whether width was shrunk to fit into screen (so content should be measured again).
+	 */
+	public boolean widthChanged;
+	/**
+	 * Whether anchor rect was shifted horizontally to keep tooltip inside screen.
+	 */
+	public boolean shifted;
+}
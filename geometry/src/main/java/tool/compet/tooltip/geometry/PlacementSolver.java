@@ -0,0 +1,220 @@
+package tool.compet.tooltip.geometry;
+
+/**
+ * Positioning math of tooltip over int rectangles, without any Android dependency.
+ * All methods are allocation-free.
+ */
+public final class PlacementSolver {
+	public enum Position {
+		LEFT,
+		RIGHT,
+		TOP,
+		BOTTOM,
+	}
+
+	public enum Align {
+		START,
+		CENTER,
+		END
+	}
+
+	public static final int MARGIN_SCREEN_BORDER_TOOLTIP = 30;
+
+	// Candidate sides of auto placement, indexed by ordinal of preferred side: preferred, opposite, then others
+	private static final Position[][] AUTO_SIDES = {
+		{Position.LEFT, Position.RIGHT, Position.BOTTOM, Position.TOP},
+		{Position.RIGHT, Position.LEFT, Position.BOTTOM, Position.TOP},
+		{Position.TOP, Position.BOTTOM, Position.RIGHT, Position.LEFT},
+		{Position.BOTTOM, Position.TOP, Position.RIGHT, Position.LEFT},
+	};
+	private static final Align[] AUTO_ALIGNS = {Align.CENTER, Align.START, Align.END};
+
+	private PlacementSolver() {
+	}
+
+	/**
+	 * @return Width which fits tooltip between anchor and screen border, or given width if it already fits.
+	 */
+	public static int fitWidth(Position position, IntRect anchor, int screenWidth, int width, int distanceWithView) {
+		if (position == Position.LEFT && width > anchor.left) {
+			return anchor.left - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
+		}
+		if (position == Position.RIGHT && anchor.right + width > screenWidth) {
+			return screenWidth - anchor.right - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
+		}
+		return width;
+	}
+
+	/**
+	 * Shift given anchor rect horizontally so a centered tooltip of given width stays inside screen.
+	 *
+	 * @return true if the rect was shifted, in this case tooltip should be aligned at center.
+	 */
+	public static boolean shiftIntoScreen(IntRect anchor, int screenWidth, int width) {
+		boolean changed = false;
+		int adjustedLeft = anchor.left;
+		int adjustedRight = anchor.right;
+
+		if ((anchor.centerX() + width / 2f) > screenWidth) {
+			float diff = (anchor.centerX() + width / 2f) - screenWidth;
+
+			adjustedLeft -= diff;
+			adjustedRight -= diff;
+			changed = true;
+		}
+		else if ((anchor.centerX() - width / 2f) < 0) {
+			float diff = -(anchor.centerX() - width / 2f);
+
+			adjustedLeft += diff;
+			adjustedRight += diff;
+			changed = true;
+		}
+
+		if (adjustedLeft < 0) {
+			adjustedLeft = 0;
+		}
+
+		if (adjustedRight > screenWidth) {
+			adjustedRight = screenWidth;
+		}
+
+		anchor.left = adjustedLeft;
+		anchor.right = adjustedRight;
+
+		return changed;
+	}
+
+	public static int alignOffset(Align align, int myLength, int hisLength) {
+		switch (align) {
+			case END:
+				return hisLength - myLength;
+			case CENTER:
+				return (hisLength - myLength) / 2;
+		}
+		return 0;
+	}
+
+	public static int placeX(Position position, Align align, IntRect anchor, int width, int distanceWithView) {
+		switch (position) {
+			case LEFT:
+				return anchor.left - width - distanceWithView;
+			case RIGHT:
+				return anchor.right + distanceWithView;
+			default:
+				return anchor.left + alignOffset(align, width, anchor.width());
+		}
+	}
+
+	public static int placeY(Position position, Align align, IntRect anchor, int height, int distanceWithView) {
+		switch (position) {
+			case BOTTOM:
+				return anchor.bottom + distanceWithView;
+			case TOP:
+				return anchor.top - height - distanceWithView;
+			default:
+				return anchor.top + alignOffset(align, height, anchor.height());
+		}
+	}
+
+	/**
+	 * Whole placement in one pass: fit width (LEFT/RIGHT) or shift into screen (TOP/BOTTOM), then translate.
+	 * Note: given anchor rect is modified when it must be shifted.
+	 */
+	public static void solve(Position position, Align align, IntRect anchor, int screenWidth,
+		int width, int height, int distanceWithView, Placement out) {
+
+		out.position = position;
+		out.align = align;
+		out.height = height;
+
+		final int fitWidth = fitWidth(position, anchor, screenWidth, width, distanceWithView);
+		out.widthChanged = fitWidth != width;
+		out.shifted = false;
+		out.width = fitWidth;
+
+		if (!out.widthChanged && (position == Position.TOP || position == Position.BOTTOM)) {
+			out.shifted = shiftIntoScreen(anchor, screenWidth, width);
+			if (out.shifted) {
+				out.align = Align.CENTER;
+			}
+		}
+
+		out.x = placeX(position, out.align, anchor, out.width, distanceWithView);
+		out.y = placeY(position, out.align, anchor, out.height, distanceWithView);
+	}
+
+	/**
+	 * Pick side and alignment which clip least of tooltip against given bounds, by scoring all
+	 * candidates in one pass. On equal clipping, preferred side (then its opposite) and CENTER alignment win.
+	 * Size of tooltip is never changed, so caller can measure it once before attaching.
+	 * Winner at TOP/BOTTOM is finally translated horizontally to stay inside bounds.
+	 *
+	 * @param bounds Area where tooltip may be drawn (root bounds without insets).
+	 * @param bodyWidth Width of tooltip without arrow.
+	 * @param bodyHeight Height of tooltip without arrow.
+	 * @param arrowHeight Size of arrow, it is added to width (LEFT/RIGHT) or height (TOP/BOTTOM) of candidate.
+	 */
+	public static void solveAuto(IntRect anchor, IntRect bounds, int bodyWidth, int bodyHeight, int arrowHeight,
+		int distanceWithView, Position preferred, Placement out) {
+		solveAuto(anchor, bounds, null, bodyWidth, bodyHeight, arrowHeight, distanceWithView, preferred, out);
+	}
+
+	/**
+	 * Same as {@link #solveAuto(IntRect, IntRect, int, int, int, int, Position, Placement)}, but a candidate
+	 * is also penalized by its overlap with occupied rectangles (other tooltips, anchors).
+	 *
+	 * @param obstacles Occupied rectangles, can be null.
+	 */
+	public static void solveAuto(IntRect anchor, IntRect bounds, OccupancyGrid obstacles, int bodyWidth, int bodyHeight,
+		int arrowHeight, int distanceWithView, Position preferred, Placement out) {
+
+		final Position[] sides = AUTO_SIDES[preferred.ordinal()];
+		long bestClipped = Long.MAX_VALUE;
+
+		for (Position side : sides) {
+			final boolean vertical = side == Position.TOP || side == Position.BOTTOM;
+			final int width = vertical ? bodyWidth : bodyWidth + arrowHeight;
+			final int height = vertical ? bodyHeight + arrowHeight : bodyHeight;
+
+			for (Align align : AUTO_ALIGNS) {
+				final int x = placeX(side, align, anchor, width, distanceWithView);
+				final int y = placeY(side, align, anchor, height, distanceWithView);
+				long clipped = (long) width * height - visibleArea(bounds, x, y, width, height);
+				if (obstacles != null && clipped < bestClipped) {
+					clipped += obstacles.overlapArea(x, y, x + width, y + height);
+				}
+
+				if (clipped < bestClipped) {
+					bestClipped = clipped;
+					out.position = side;
+					out.align = align;
+					out.x = x;
+					out.y = y;
+					out.width = width;
+					out.height = height;
+				}
+				if (bestClipped == 0) {
+					break;
+				}
+			}
+			if (bestClipped == 0) {
+				break;
+			}
+		}
+
+		out.widthChanged = false;
+		out.shifted = false;
+
+		if (bestClipped > 0 && (out.position == Position.TOP || out.position == Position.BOTTOM)) {
+			final int x = Math.max(bounds.left, Math.min(out.x, bounds.right - out.width));
+			out.shifted = x != out.x;
+			out.x = x;
+		}
+	}
+
+	private static long visibleArea(IntRect bounds, int x, int y, int width, int height) {
+		final long visibleWidth = Math.min(x + width, bounds.right) - Math.max(x, bounds.left);
+		final long visibleHeight = Math.min(y + height, bounds.bottom) - Math.max(y, bounds.top);
+		return visibleWidth <= 0 || visibleHeight <= 0 ? 0 : visibleWidth * visibleHeight;
+	}
+}
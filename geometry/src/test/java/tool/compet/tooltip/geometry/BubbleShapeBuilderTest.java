@@ -0,0 +1,92 @@
+package tool.compet.tooltip.geometry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BubbleShapeBuilderTest {
+	private static final class RecordingSink implements PathCommands.Sink {
+		final List<float[]> lines = new ArrayList<>();
+		int moveCount;
+		int quadCount;
+		int closeCount;
+
+		@Override
+		public void moveTo(float x, float y) {
+			++moveCount;
+		}
+
+		@Override
+		public void lineTo(float x, float y) {
+			lines.add(new float[] {x, y});
+		}
+
+		@Override
+		public void quadTo(float x1, float y1, float x2, float y2) {
+			++quadCount;
+		}
+
+		@Override
+		public void close() {
+			++closeCount;
+		}
+
+		boolean hasLineTo(float x, float y) {
+			for (float[] point : lines) {
+				if (point[0] == x && point[1] == y) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static BubbleSpec spec(PlacementSolver.Position position) {
+		final BubbleSpec spec = new BubbleSpec();
+		spec.width = 200;
+		spec.height = 100;
+		spec.corner = 8;
+		spec.arrowWidth = 10;
+		spec.arrowHeight = 20;
+		spec.position = position;
+		spec.arrowOffset = 100;
+		return spec;
+	}
+
+	@Test
+	public void build_bottomBubbleHasArrowAtTop() {
+		final PathCommands commands = new PathCommands();
+		final float[] body = new float[4];
+
+		BubbleShapeBuilder.build(spec(PlacementSolver.Position.BOTTOM), commands, body);
+
+		final RecordingSink sink = new RecordingSink();
+		commands.replay(sink);
+		assertEquals(13, commands.size());
+		assertEquals(PathCommands.MOVE_TO, commands.op(0));
+		assertEquals(PathCommands.CLOSE, commands.op(commands.size() - 1));
+		assertEquals(1, sink.moveCount);
+		assertEquals(4, sink.quadCount);
+		assertEquals(1, sink.closeCount);
+		assertTrue("arrow tip", sink.hasLineTo(100, 0));
+		assertArrayEquals(new float[] {0, 20, 200, 100}, body, 0);
+	}
+
+	@Test
+	public void build_resetsCommandsBeforeBuilding() {
+		final PathCommands commands = new PathCommands();
+		final float[] body = new float[4];
+
+		BubbleShapeBuilder.build(spec(PlacementSolver.Position.LEFT), commands, body);
+		final int size = commands.size();
+		BubbleShapeBuilder.build(spec(PlacementSolver.Position.LEFT), commands, body);
+
+		assertEquals(size, commands.size());
+		assertArrayEquals(new float[] {0, 0, 180, 100}, body, 0);
+	}
+}
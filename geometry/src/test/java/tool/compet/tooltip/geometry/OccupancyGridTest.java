@@ -0,0 +1,102 @@
+package tool.compet.tooltip.geometry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class OccupancyGridTest {
+	private final OccupancyGrid grid = new OccupancyGrid(128);
+
+	@Test
+	public void overlapArea_sumsIntersectionsOfOccupiedRectangles() {
+		grid.add(0, 0, 100, 100);
+		grid.add(50, 50, 300, 300);
+
+		assertEquals(2, grid.size());
+		assertEquals(50 * 50 + 100 * 100, grid.overlapArea(50, 50, 150, 150));
+		assertEquals(0, grid.overlapArea(300, 0, 400, 100));
+	}
+
+	@Test
+	public void overlapArea_countsRectangleSpanningManyCellsOnce() {
+		grid.add(-500, -500, 500, 500);
+
+		assertEquals(1000L * 1000, grid.overlapArea(-1000, -1000, 1000, 1000));
+	}
+
+	@Test
+	public void remove_freesAreaAndIgnoresUnknownHandle() {
+		final int handle = grid.add(0, 0, 100, 100);
+		grid.remove(OccupancyGrid.NO_HANDLE);
+		grid.remove(handle);
+		grid.remove(handle);
+
+		assertEquals(0, grid.size());
+		assertEquals(0, grid.overlapArea(0, 0, 100, 100));
+	}
+
+	@Test
+	public void update_movesRectangle() {
+		int handle = grid.add(0, 0, 100, 100);
+		handle = grid.update(handle, 1000, 1000, 1100, 1100);
+
+		assertEquals(1, grid.size());
+		assertEquals(0, grid.overlapArea(0, 0, 100, 100));
+		assertEquals(100 * 100, grid.overlapArea(1000, 1000, 1100, 1100));
+
+		grid.remove(handle);
+		assertEquals(0, grid.size());
+	}
+
+	@Test
+	public void clear_removesEverything() {
+		grid.add(0, 0, 100, 100);
+		grid.add(200, 200, 300, 300);
+		grid.clear();
+
+		assertEquals(0, grid.size());
+		assertEquals(0, grid.overlapArea(0, 0, 300, 300));
+	}
+
+	@Test
+	public void overlapArea_matchesBruteForceUnderRandomChanges() {
+		final Random random = new Random(42);
+		final List<int[]> rects = new ArrayList<>();
+		final List<Integer> handles = new ArrayList<>();
+
+		for (int step = 0; step < 2000; ++step) {
+			if (!rects.isEmpty() && random.nextInt(3) == 0) {
+				final int index = random.nextInt(rects.size());
+				grid.remove(handles.remove(index));
+				rects.remove(index);
+			}
+			else {
+				final int[] rect = randomRect(random);
+				rects.add(rect);
+				handles.add(grid.add(rect[0], rect[1], rect[2], rect[3]));
+			}
+
+			final int[] query = randomRect(random);
+			long expected = 0;
+			for (int[] rect : rects) {
+				final long width = Math.min(query[2], rect[2]) - Math.max(query[0], rect[0]);
+				final long height = Math.min(query[3], rect[3]) - Math.max(query[1], rect[1]);
+				if (width > 0 && height > 0) {
+					expected += width * height;
+				}
+			}
+			assertEquals("step " + step, expected, grid.overlapArea(query[0], query[1], query[2], query[3]));
+			assertEquals(rects.size(), grid.size());
+		}
+	}
+
+	private static int[] randomRect(Random random) {
+		final int left = random.nextInt(3000) - 1000;
+		final int top = random.nextInt(3000) - 1000;
+		return new int[] {left, top, left + random.nextInt(600), top + random.nextInt(600)};
+	}
+}
@@ -0,0 +1,86 @@
+package tool.compet.tooltip.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlacementSolverTest {
+	private static final IntRect SCREEN = new IntRect(0, 0, 1080, 1920);
+
+	private final Placement placement = new Placement();
+
+	@Test
+	public void solve_fitsWidthBetweenAnchorAndScreenBorder() {
+		final IntRect anchor = new IntRect(900, 100, 1000, 200);
+
+		PlacementSolver.solve(PlacementSolver.Position.RIGHT, PlacementSolver.Align.CENTER, anchor, 1080, 300, 80, 0, placement);
+
+		assertTrue(placement.widthChanged);
+		assertEquals(1080 - 1000 - PlacementSolver.MARGIN_SCREEN_BORDER_TOOLTIP, placement.width);
+		assertEquals(1000, placement.x);
+	}
+
+	@Test
+	public void solve_shiftsCenteredTooltipIntoScreen() {
+		final IntRect anchor = new IntRect(0, 100, 100, 200);
+
+		PlacementSolver.solve(PlacementSolver.Position.BOTTOM, PlacementSolver.Align.START, anchor, 1080, 300, 80, 0, placement);
+
+		assertTrue(placement.shifted);
+		assertFalse(placement.widthChanged);
+		assertSame(PlacementSolver.Align.CENTER, placement.align);
+		assertEquals(0, placement.x);
+		assertEquals(200, placement.y);
+	}
+
+	@Test
+	public void solveAuto_keepsPreferredSideWhenItFits() {
+		PlacementSolver.solveAuto(new IntRect(500, 100, 600, 200), SCREEN, 200, 80, 20, 0, PlacementSolver.Position.TOP, placement);
+
+		assertSame(PlacementSolver.Position.TOP, placement.position);
+		assertSame(PlacementSolver.Align.CENTER, placement.align);
+		assertEquals(450, placement.x);
+		assertEquals(0, placement.y);
+		assertEquals(200, placement.width);
+		assertEquals(100, placement.height);
+		assertFalse(placement.shifted);
+	}
+
+	@Test
+	public void solveAuto_flipsToOppositeSideWhenPreferredIsClipped() {
+		PlacementSolver.solveAuto(new IntRect(500, 50, 600, 150), SCREEN, 200, 80, 20, 0, PlacementSolver.Position.TOP, placement);
+
+		assertSame(PlacementSolver.Position.BOTTOM, placement.position);
+		assertSame(PlacementSolver.Align.CENTER, placement.align);
+		assertEquals(450, placement.x);
+		assertEquals(150, placement.y);
+	}
+
+	@Test
+	public void solveAuto_avoidsOccupiedArea() {
+		final OccupancyGrid obstacles = new OccupancyGrid(128);
+		obstacles.add(0, 0, 1080, 100);
+
+		PlacementSolver.solveAuto(new IntRect(500, 100, 600, 200), SCREEN, obstacles, 200, 80, 20, 0,
+			PlacementSolver.Position.TOP, placement);
+
+		assertSame(PlacementSolver.Position.BOTTOM, placement.position);
+		assertEquals(200, placement.y);
+	}
+
+	@Test
+	public void solveAuto_clampsClippedVerticalWinnerIntoBounds() {
+		final IntRect bounds = new IntRect(0, 0, 300, 1000);
+
+		PlacementSolver.solveAuto(new IntRect(100, 500, 150, 520), bounds, 290, 50, 20, 0, PlacementSolver.Position.TOP, placement);
+
+		assertSame(PlacementSolver.Position.TOP, placement.position);
+		assertSame(PlacementSolver.Align.CENTER, placement.align);
+		assertTrue(placement.shifted);
+		assertEquals(0, placement.x);
+		assertEquals(430, placement.y);
+	}
+}
@@ -0,0 +1,165 @@
+package tool.compet.tooltip
+
+import android.animation.Animator
+import android.animation.ValueAnimator
+import android.app.Activity
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Rect
+import android.os.Debug
+import android.view.Gravity
+import android.view.View
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import androidx.test.core.app.ActivityScenario
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+
+import org.junit.Test
+import org.junit.runner.RunWith
+
+import org.junit.Assert.*
+
+/**
+ * Fails when setup/draw hot path of tooltip starts allocating again after warm-up, or when a show
+ * and close cycle of DkTooltip (attach to host, anchor tracking, occupancy, setup, draw, removal
+ * into pool) allocates differently from cycle to cycle or more than its budget.
+ */
+@RunWith(AndroidJUnit4::class)
+@Suppress("DEPRECATION")
+class TooltipAllocationTest {
+    // Finishes immediately and reuses one animator, so the animation itself allocates nothing
+    private object InstantAnimation : DkTooltip.TooltipAnimation {
+        private val animator = ValueAnimator.ofInt(0)
+
+        override fun animateEnter(view: View, animatorListener: Animator.AnimatorListener) {
+            animatorListener.onAnimationEnd(animator)
+        }
+
+        override fun animateExit(view: View, animatorListener: Animator.AnimatorListener) {
+            animatorListener.onAnimationEnd(animator)
+        }
+    }
+
+    private object NoAnimation : DkTooltip.TooltipAnimation {
+        override fun animateEnter(view: View, animatorListener: Animator.AnimatorListener) {}
+
+        override fun animateExit(view: View, animatorListener: Animator.AnimatorListener) {}
+    }
+
+    private lateinit var activity: Activity
+    private lateinit var root: FrameLayout
+    private lateinit var anchor: View
+    private lateinit var canvas: Canvas
+
+    @Test
+    fun setupAndDraw_allocateNothingAfterWarmUp() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        instrumentation.runOnMainSync {
+            val context = instrumentation.targetContext
+            val root = FrameLayout(context)
+            val tooltipView = TooltipView(context)
+            tooltipView.setTooltipAnimation(NoAnimation)
+            tooltipView.setAutoHide(false)
+            tooltipView.setText("Tooltip")
+            root.addView(tooltipView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT)
+            root.measure(
+                View.MeasureSpec.makeMeasureSpec(ROOT_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(ROOT_HEIGHT, View.MeasureSpec.EXACTLY)
+            )
+            root.layout(0, 0, ROOT_WIDTH, ROOT_HEIGHT)
+
+            val anchorRect = Rect(400, 400, 600, 500)
+            val canvas = Canvas(Bitmap.createBitmap(tooltipView.width, tooltipView.height, Bitmap.Config.ARGB_8888))
+
+            repeat(WARM_UP) {
+                tooltipView.setup(anchorRect, ROOT_WIDTH)
+                tooltipView.draw(canvas)
+            }
+
+            Debug.resetThreadAllocCount()
+            Debug.startAllocCounting()
+            repeat(ITERATIONS) {
+                tooltipView.setup(anchorRect, ROOT_WIDTH)
+                tooltipView.draw(canvas)
+            }
+            Debug.stopAllocCounting()
+
+            assertEquals(0, Debug.getThreadAllocCount())
+        }
+    }
+
+    @Test
+    fun showAndClose_staysInAllocationBudgetAfterWarmUp() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        ActivityScenario.launch(Activity::class.java).use { scenario ->
+            scenario.onActivity {
+                activity = it
+                root = FrameLayout(it)
+                anchor = View(it)
+                root.addView(anchor, FrameLayout.LayoutParams(ANCHOR_SIZE, ANCHOR_SIZE, Gravity.CENTER))
+                it.setContentView(root)
+            }
+            instrumentation.waitForIdleSync()
+
+            // First cycles add tooltip host to root, and fill pool and caches
+            instrumentation.runOnMainSync {
+                canvas = Canvas(Bitmap.createBitmap(root.width, root.height, Bitmap.Config.ARGB_8888))
+            }
+            repeat(WARM_UP) {
+                instrumentation.runOnMainSync { showAndClose() }
+                instrumentation.waitForIdleSync()
+            }
+
+            instrumentation.runOnMainSync {
+                // Warmed cycles are identical, so any cycle allocating differently is a leak or a cold path
+                val first = countAllocations()
+                repeat(ITERATIONS) {
+                    assertEquals("cycle $it allocated differently from first measured cycle", first, countAllocations())
+                }
+                assertTrue(
+                    "show and close allocated $first objects, budget is $ALLOCATIONS_PER_CYCLE",
+                    first <= ALLOCATIONS_PER_CYCLE
+                )
+            }
+        }
+    }
+
+    private fun countAllocations(): Int {
+        Debug.resetThreadAllocCount()
+        Debug.startAllocCounting()
+        showAndClose()
+        Debug.stopAllocCounting()
+        return Debug.getThreadAllocCount()
+    }
+
+    /**
+     * One cycle on main thread, with the frame run by hand: host lays itself out and tooltip
+     * is set up on pre-draw, then root is drawn.
+     */
+    private fun showAndClose() {
+        val tooltip = DkTooltip.on(activity, root, anchor)
+            .text(TEXT)
+            .animation(InstantAnimation)
+            .autoHide(false)
+            .pooled(true)
+            .premeasure(true)
+        tooltip.show()
+        root.viewTreeObserver.dispatchOnPreDraw()
+        root.draw(canvas)
+        tooltip.close()
+    }
+
+    companion object {
+        private const val ROOT_WIDTH = 1080
+        private const val ROOT_HEIGHT = 1920
+        private const val ANCHOR_SIZE = 100
+        private const val TEXT = "Tooltip"
+        private const val WARM_UP = 5
+        private const val ITERATIONS = 100
+
+        // DkTooltip with its listeners and scratch objects, text set into TextView, and its layout.
+        // Exact count of a cycle is pinned by comparing cycles, this bound catches a uniformly larger cycle
+        private const val ALLOCATIONS_PER_CYCLE = 64
+    }
+}
@@ -0,0 +1,92 @@
+package tool.compet.tooltip;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Keeps a shown tooltip attached to its anchor while anything above the anchor scrolls or moves
+ * (ScrollView, RecyclerView, ViewPager, CoordinatorLayout offsets, translations...).
+ * Anchor position is read at most once per frame (on pre-draw), and tooltip is moved only when
+ * anchor really moved. Listeners are added to the view tree, so existing scroll listeners are kept.
+ */
+final class AnchorTracker implements ViewTreeObserver.OnPreDrawListener, View.OnAttachStateChangeListener {
+	private final TooltipView tooltipView;
+	private WeakReference<View> anchorRef;
+	private final int[] location = new int[2];
+	private int lastX;
+	private int lastY;
+	private ViewTreeObserver observer;
+
+	AnchorTracker(TooltipView tooltipView) {
+		this.tooltipView = tooltipView;
+	}
+
+	/**
+	 * Start tracking from current anchor position, the tooltip is expected to be placed
+	 * against this position by its setup.
+	 */
+	void start(View anchor) {
+		stop();
+
+		this.anchorRef = new WeakReference<>(anchor);
+		anchor.getLocationInWindow(location);
+		lastX = location[0];
+		lastY = location[1];
+
+		observer = tooltipView.getViewTreeObserver();
+		observer.addOnPreDrawListener(this);
+		tooltipView.addOnAttachStateChangeListener(this);
+	}
+
+	/**
+	 * Switch to other anchor view, tooltip will follow it from next frame.
+	 */
+	void setAnchor(View anchor) {
+		this.anchorRef = anchor != null ? new WeakReference<>(anchor) : null;
+	}
+
+	void stop() {
+		if (observer != null) {
+			if (observer.isAlive()) {
+				observer.removeOnPreDrawListener(this);
+			}
+			else {
+				tooltipView.getViewTreeObserver().removeOnPreDrawListener(this);
+			}
+			observer = null;
+			tooltipView.removeOnAttachStateChangeListener(this);
+		}
+		anchorRef = null;
+	}
+
+	@Override
+	public boolean onPreDraw() {
+		final View anchor = anchorRef != null ? anchorRef.get() : null;
+		// Tooltip is placed by its setup against anchor position at start time
+		if (anchor == null || !tooltipView.isSetupDone() || !anchor.isAttachedToWindow()) {
+			return true;
+		}
+
+		anchor.getLocationInWindow(location);
+		final int dx = location[0] - lastX;
+		final int dy = location[1] - lastY;
+
+		if (dx != 0 || dy != 0) {
+			lastX = location[0];
+			lastY = location[1];
+			tooltipView.moveWithAnchor(dx, dy);
+		}
+		return true;
+	}
+
+	@Override
+	public void onViewAttachedToWindow(View v) {
+	}
+
+	@Override
+	public void onViewDetachedFromWindow(View v) {
+		stop();
+	}
+}
@@ -0,0 +1,100 @@
+package tool.compet.tooltip;
+
+/**
+ * Geometry of a bubble, two tooltips with equal keys have exactly same bubble path.
+ * A key is mutable only to serve as allocation-free lookup, keys stored in caches are never mutated.
+ */
+final class BubbleKey {
+	int width;
+	int height;
+	int shadowPadding;
+	int corner;
+	int arrowWidth;
+	int arrowHeight;
+	int arrowSourceMargin;
+	int arrowTargetMargin;
+	DkTooltip.Position position;
+	float arrowOffset;
+	int marginLeft;
+	int marginTop;
+	int marginRight;
+	int marginBottom;
+
+	BubbleKey() {
+	}
+
+	BubbleKey(BubbleKey other) {
+		set(other);
+	}
+
+	BubbleKey set(int width, int height, int shadowPadding, int corner, int arrowWidth, int arrowHeight,
+		int arrowSourceMargin, int arrowTargetMargin, DkTooltip.Position position, float arrowOffset,
+		int marginLeft, int marginTop, int marginRight, int marginBottom) {
+		this.width = width;
+		this.height = height;
+		this.shadowPadding = shadowPadding;
+		this.corner = corner;
+		this.arrowWidth = arrowWidth;
+		this.arrowHeight = arrowHeight;
+		this.arrowSourceMargin = arrowSourceMargin;
+		this.arrowTargetMargin = arrowTargetMargin;
+		this.position = position;
+		this.arrowOffset = arrowOffset;
+		this.marginLeft = marginLeft;
+		this.marginTop = marginTop;
+		this.marginRight = marginRight;
+		this.marginBottom = marginBottom;
+		return this;
+	}
+
+	BubbleKey set(BubbleKey other) {
+		return set(other.width, other.height, other.shadowPadding, other.corner, other.arrowWidth, other.arrowHeight,
+			other.arrowSourceMargin, other.arrowTargetMargin, other.position, other.arrowOffset,
+			other.marginLeft, other.marginTop, other.marginRight, other.marginBottom);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof BubbleKey)) {
+			return false;
+		}
+		final BubbleKey other = (BubbleKey) o;
+		return width == other.width
+			&& height == other.height
+			&& shadowPadding == other.shadowPadding
+			&& corner == other.corner
+			&& arrowWidth == other.arrowWidth
+			&& arrowHeight == other.arrowHeight
+			&& arrowSourceMargin == other.arrowSourceMargin
+			&& arrowTargetMargin == other.arrowTargetMargin
+			&& position == other.position
+			&& Float.compare(arrowOffset, other.arrowOffset) == 0
+			&& marginLeft == other.marginLeft
+			&& marginTop == other.marginTop
+			&& marginRight == other.marginRight
+			&& marginBottom == other.marginBottom;
+	}
+
+	@Override
+	public int hashCode() {
+		// Computed by hand to avoid boxing and varargs allocation of Objects.hash()
+		int result = width;
+		result = 31 * result + height;
+		result = 31 * result + shadowPadding;
+		result = 31 * result + corner;
+		result = 31 * result + arrowWidth;
+		result = 31 * result + arrowHeight;
+		result = 31 * result + arrowSourceMargin;
+		result = 31 * result + arrowTargetMargin;
+		result = 31 * result + (position != null ? position.ordinal() : -1);
+		result = 31 * result + Float.floatToIntBits(arrowOffset);
+		result = 31 * result + marginLeft;
+		result = 31 * result + marginTop;
+		result = 31 * result + marginRight;
+		result = 31 * result + marginBottom;
+		return result;
+	}
+}
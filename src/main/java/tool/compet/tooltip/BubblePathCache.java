@@ -0,0 +1,106 @@
+package tool.compet.tooltip;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import tool.compet.tooltip.geometry.BubbleShapeBuilder;
+import tool.compet.tooltip.geometry.BubbleSpec;
+import tool.compet.tooltip.geometry.PathCommands;
+
+/**
+ * Process-wide cache of bubble shapes keyed by geometry. Cached paths are shared between
+ * tooltips, so they must be treated as read-only.
+ */
+final class BubblePathCache {
+	private static final LruCache<BubbleKey, BubbleShape> cache = new LruCache<>(64);
+	// Build scratch, only touched from main thread
+	private static final BubbleSpec spec = new BubbleSpec();
+	private static final PathCommands commands = new PathCommands();
+	private static final float[] body = new float[4];
+
+	private BubblePathCache() {
+	}
+
+	/**
+	 * @param key Lookup key, it may be a scratch instance since a copy is stored on miss.
+	 */
+	static BubbleShape obtain(BubbleKey key) {
+		BubbleShape shape = cache.get(key);
+		if (shape == null) {
+			shape = build(key);
+			cache.put(new BubbleKey(key), shape);
+		}
+		return shape;
+	}
+
+	static void setMaxSize(int maxSize) {
+		cache.resize(maxSize);
+	}
+
+	static int hitCount() {
+		return cache.hitCount();
+	}
+
+	static int missCount() {
+		return cache.missCount();
+	}
+
+	static void clear() {
+		cache.evictAll();
+	}
+
+	private static BubbleShape build(BubbleKey key) {
+		spec.width = key.width;
+		spec.height = key.height;
+		spec.shadowPadding = key.shadowPadding;
+		spec.corner = key.corner;
+		spec.arrowWidth = key.arrowWidth;
+		spec.arrowHeight = key.arrowHeight;
+		spec.arrowSourceMargin = key.arrowSourceMargin;
+		spec.arrowTargetMargin = key.arrowTargetMargin;
+		spec.position = TooltipView.toSolverPosition(key.position);
+		spec.arrowOffset = key.arrowOffset;
+		spec.marginLeft = key.marginLeft;
+		spec.marginTop = key.marginTop;
+		spec.marginRight = key.marginRight;
+		spec.marginBottom = key.marginBottom;
+
+		BubbleShapeBuilder.build(spec, commands, body);
+
+		final Path path = new Path();
+		commands.replay(new PathCommands.Sink() {
+			@Override
+			public void moveTo(float x, float y) {
+				path.moveTo(x, y);
+			}
+
+			@Override
+			public void lineTo(float x, float y) {
+				path.lineTo(x, y);
+			}
+
+			@Override
+			public void quadTo(float x1, float y1, float x2, float y2) {
+				path.quadTo(x1, y1, x2, y2);
+			}
+
+			@Override
+			public void close() {
+				path.close();
+			}
+		});
+
+		return new BubbleShape(path, new RectF(body[0], body[1], body[2], body[3]));
+	}
+
+	static final class BubbleShape {
+		final Path path;
+		final RectF body;
+
+		BubbleShape(Path path, RectF body) {
+			this.path = path;
+			this.body = body;
+		}
+	}
+}
@@ -11,11 +11,22 @@ import android.graphics.Typeface;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.StringRes;
-import androidx.core.widget.NestedScrollView;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
 
 /**
  * Ref: https://github.com/florent37/ViewTooltip
@@ -30,6 +41,11 @@ public class DkTooltip {
 		RIGHT,
 		TOP,
 		BOTTOM,
+		/**
+		 * Pick side and alignment which fit best into root before attaching, preferring position set
+		 * before this (BOTTOM by default). Implies {@link #premeasure(boolean)}.
+		 */
+		AUTO,
 	}
 
 	public enum Align {
@@ -42,6 +58,14 @@ public class DkTooltip {
 		void animateEnter(View view, Animator.AnimatorListener animatorListener);
 
 		void animateExit(View view, Animator.AnimatorListener animatorListener);
+
+		/**
+		 * @return true to render the tooltip through a temporary hardware layer while this animation runs,
+		 * so only the layer is composited per frame instead of redrawing the tooltip hierarchy.
+		 */
+		default boolean promoteToHardwareLayer() {
+			return false;
+		}
 	}
 
 	public interface ListenerDisplay {
@@ -52,33 +76,116 @@ public class DkTooltip {
 		void onHide(View view);
 	}
 
-	private final View view;
+	public interface ListenerMetrics {
+		/**
+		 * Called on main thread when a shown tooltip is removed. Given metrics is reused
+		 * by the tooltip, so copy values which should be kept.
+		 */
+		void onMetrics(TooltipMetrics metrics);
+	}
+
+	public interface Updater {
+		void update(DkTooltip tooltip);
+	}
+
+	private static ListenerMetrics globalMetricsListener;
+
+	// Anchor is held weakly so a tooltip never keeps a dead screen alive
+	private WeakReference<View> anchorRef;
 	private final TooltipView tooltipView;
+	private final AnchorTracker anchorTracker;
 	private View rootView;
+	private ViewGroup targetRoot;
 
-	private DkTooltip(MyContext myContext, View view) {
-		this.view = view;
-		this.tooltipView = new TooltipView(myContext.getContext());
+	// Scratch objects which are reused on every show
+	private final Rect anchorRect = new Rect();
+	private final Rect rootBounds = new Rect();
+	private final Rect rootGlobalRect = new Rect();
+	private final Point rootGlobalOffset = new Point();
+	private final int[] anchorLocation = new int[2];
+	private boolean pendingAttach;
+	private boolean premeasure;
+	private boolean batched;
+	private boolean precomputeText;
+	private Object pendingText;
+	private int textGeneration;
+	private boolean textPrecomputing;
+	private TooltipRecord record;
+	private RecyclerAnchor recyclerAnchor;
+	private boolean showRequested;
+	private boolean pooled;
+
+	// Show as soon as anchor and root are attached and laid out
+	private final ViewTreeObserver.OnGlobalLayoutListener readyLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+		@Override
+		public void onGlobalLayout() {
+			attachIfReady();
+		}
+	};
+
+	private final View.OnAttachStateChangeListener anchorAttachListener = new View.OnAttachStateChangeListener() {
+		@Override
+		public void onViewAttachedToWindow(View v) {
+			v.getViewTreeObserver().addOnGlobalLayoutListener(readyLayoutListener);
+			attachIfReady();
+		}
 
-		final NestedScrollView scrollParent = findScrollParent(view);
-		if (scrollParent != null) {
-			scrollParent.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX, oldScrollY) ->
-				tooltipView.setTranslationY(tooltipView.getTranslationY() - (scrollY - oldScrollY))
-			);
+		@Override
+		public void onViewDetachedFromWindow(View v) {
+			cancelPendingShow();
+			// Recycled item view, wait until the item is bound again
+			if (recyclerAnchor == null && ownsView()) {
+				tooltipView.closeNow();
+			}
 		}
+	};
+
+	private Lifecycle lifecycle;
+
+	private final LifecycleEventObserver lifecycleObserver = (source, event) -> {
+		if (event == Lifecycle.Event.ON_STOP || event == Lifecycle.Event.ON_DESTROY) {
+			release();
+		}
+	};
+
+	private final ViewTreeObserver.OnPreDrawListener setupOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			tooltipView.getViewTreeObserver().removeOnPreDrawListener(this);
+			// Removed before its first frame, the view may serve other tooltip now
+			if (!ownsView()) {
+				return true;
+			}
+			tooltipView.setup(anchorRect, targetRoot.getWidth());
+			tooltipView.onPreDrawCancelled();
+			return false;
+		}
+	};
+
+	private DkTooltip(MyContext myContext, View view) {
+		this.anchorRef = new WeakReference<>(view);
+		this.tooltipView = obtainTooltipView(myContext);
+		this.tooltipView.owner = this;
+		this.anchorTracker = new AnchorTracker(tooltipView);
+		bindLifecycle(myContext.getLifecycleOwner());
 	}
 
 	private DkTooltip(MyContext myContext, View rootView, View view) {
 		this.rootView = rootView;
-		this.view = view;
-		this.tooltipView = new TooltipView(myContext.getContext());
+		this.anchorRef = new WeakReference<>(view);
+		this.tooltipView = obtainTooltipView(myContext);
+		this.tooltipView.owner = this;
+		this.anchorTracker = new AnchorTracker(tooltipView);
+		bindLifecycle(myContext.getLifecycleOwner());
+	}
 
-		final NestedScrollView scrollParent = findScrollParent(view);
-		if (scrollParent != null) {
-			scrollParent.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX, oldScrollY) ->
-				tooltipView.setTranslationY(tooltipView.getTranslationY() - (scrollY - oldScrollY))
-			);
-		}
+	private DkTooltip(MyContext myContext, RecyclerAnchor recyclerAnchor) {
+		this.tooltipView = obtainTooltipView(myContext);
+		this.tooltipView.owner = this;
+		this.anchorTracker = new AnchorTracker(tooltipView);
+		this.recyclerAnchor = recyclerAnchor;
+		this.anchorRef = new WeakReference<>(recyclerAnchor.bind(this, tooltipView));
+		bindLifecycle(myContext.getLifecycleOwner());
 	}
 
 	private DkTooltip(View view) {
@@ -101,6 +208,79 @@ public class DkTooltip {
 		return new DkTooltip(new MyContext(getActivityContext(activity)), rootView, view);
 	}
 
+	/**
+	 * Anchor to RecyclerView item at given adapter position instead of to a (recyclable) item view.
+	 * Tooltip is hidden while the item is scrolled out, and follows the item when it is bound again.
+	 * RecyclerView is not a dependency of this library, app must provide androidx.recyclerview 1.2.0 or newer.
+	 */
+	public static DkTooltip onItem(RecyclerView recyclerView, int adapterPosition) {
+		return new DkTooltip(new MyContext(getActivityContext(recyclerView.getContext())),
+			RecyclerAnchor.byAdapterPosition(recyclerView, adapterPosition));
+	}
+
+	/**
+	 * Like {@link #onItem(RecyclerView, int)} but anchor to item with given stable id.
+	 */
+	public static DkTooltip onItemId(RecyclerView recyclerView, long stableId) {
+		return new DkTooltip(new MyContext(getActivityContext(recyclerView.getContext())),
+			RecyclerAnchor.byStableId(recyclerView, stableId));
+	}
+
+	private static TooltipView obtainTooltipView(MyContext myContext) {
+		final Activity activity = myContext.getActivity();
+		final TooltipView tooltipView = activity != null ? TooltipPool.of(activity).obtain() : new TooltipView(myContext.getContext());
+		if (globalMetricsListener != null) {
+			tooltipView.setMetricsListener(globalMetricsListener);
+		}
+		return tooltipView;
+	}
+
+	/**
+	 * Emit named system trace sections (DkTooltip.attach, TooltipView.setup, adjustSize, drawBubble, onDraw,
+	 * animation) which can be seen in Perfetto or Systrace.
+	 */
+	public static void setTraceEnabled(boolean enabled) {
+		TooltipTrace.enabled = enabled;
+	}
+
+	/**
+	 * Show draw cost and layer type on top of every tooltip, so expensive tooltips can be spotted without profiler.
+	 */
+	public static void setDebugOverlayEnabled(boolean enabled) {
+		TooltipTrace.debugOverlay = enabled;
+	}
+
+	/**
+	 * Metrics listener (for eg,. a {@link TooltipMetricsCollector}) which is installed to every tooltip created after this call.
+	 */
+	public static void setGlobalMetricsListener(ListenerMetrics listener) {
+		globalMetricsListener = listener;
+	}
+
+	/**
+	 * Pool of recycled tooltip views of given Activity, use it to tune pool size or read reuse rate.
+	 */
+	public static TooltipPool getPool(Activity activity) {
+		return TooltipPool.of(activity);
+	}
+
+	/**
+	 * Build and pre-measure given number of tooltip views into pool of given activity, one per main thread
+	 * idle pass, and warm shared caches on the way, so first shown tooltip is as fast as later ones.
+	 * Max size of the pool is raised to given count if needed. Only tooltips which opted in via
+	 * {@link #pooled(boolean)} give their view back to the pool after use.
+	 *
+	 * @param style Style which tooltips will use, can be null. It only shapes the bubbles built while warming,
+	 *              pooled views are reset so it must still be applied to each tooltip.
+	 */
+	public static void prewarm(Activity activity, int count, TooltipStyle style) {
+		TooltipPrewarmer.start(activity, count, style);
+	}
+
+	public static void prewarm(Activity activity, int count) {
+		prewarm(activity, count, null);
+	}
+
 	private static Activity getActivityContext(Context context) {
 		while (context instanceof ContextWrapper) {
 			if (context instanceof Activity) {
@@ -111,143 +291,562 @@ public class DkTooltip {
 		return null;
 	}
 
-	private NestedScrollView findScrollParent(View view) {
-		if (view.getParent() == null || !(view.getParent() instanceof View)) {
-			return null;
-		}
-		else if (view.getParent() instanceof NestedScrollView) {
-			return ((NestedScrollView) view.getParent());
-		}
-		else {
-			return findScrollParent(((View) view.getParent()));
-		}
-	}
-
 	public DkTooltip position(Position position) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setPosition(position);
 		return this;
 	}
 
 	public DkTooltip withShadow(boolean withShadow) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setWithShadow(withShadow);
 		return this;
 	}
 
+	/**
+	 * Render bubble and its shadow in GPU pipeline (elevation + outline) instead of software layer.
+	 */
+	public DkTooltip hardwareRendering(boolean hardwareRendering) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setHardwareRendering(hardwareRendering);
+		return this;
+	}
+
+	/**
+	 * Blur the shadow once per style and geometry, then reuse it from a process-wide cache.
+	 */
+	public DkTooltip cachedShadow(boolean cachedShadow) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setShadowCached(cachedShadow);
+		return this;
+	}
+
+	/**
+	 * Memory budget (in bytes) of the process-wide shadow bitmap cache, least recently used shadows are evicted first.
+	 */
+	public static void setShadowCacheMaxBytes(int maxBytes) {
+		ShadowBitmapCache.setMaxBytes(maxBytes);
+	}
+
+	public static void clearShadowCache() {
+		ShadowBitmapCache.clear();
+	}
+
+	/**
+	 * Bubble paths are shared between tooltips which have same geometry.
+	 * These counters tell how often a path was reused (hit) or built (miss).
+	 */
+	public static int getPathCacheHitCount() {
+		return BubblePathCache.hitCount();
+	}
+
+	public static int getPathCacheMissCount() {
+		return BubblePathCache.missCount();
+	}
+
+	public static void setPathCacheMaxSize(int maxSize) {
+		BubblePathCache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Html text of tooltips is parsed once and shared via process-wide cache.
+	 * These counters tell how often parsing was skipped (hit) or done (miss).
+	 */
+	public static int getHtmlCacheHitCount() {
+		return HtmlCache.hitCount();
+	}
+
+	public static int getHtmlCacheMissCount() {
+		return HtmlCache.missCount();
+	}
+
+	public static int getHtmlCacheEvictionCount() {
+		return HtmlCache.evictionCount();
+	}
+
+	public static void setHtmlCacheMaxSize(int maxSize) {
+		HtmlCache.setMaxSize(maxSize);
+	}
+
 	public DkTooltip shadowColor(@ColorInt int shadowColor) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setShadowColor(shadowColor);
 		return this;
 	}
 
 	public DkTooltip customView(View customView) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setCustomView(customView);
 		return this;
 	}
 
 	public DkTooltip customView(int viewId) {
-		this.tooltipView.setCustomView(((Activity) view.getContext()).findViewById(viewId));
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setCustomView(((Activity) tooltipView.getContext()).findViewById(viewId));
 		return this;
 	}
 
 	public DkTooltip arrowWidth(int arrowWidth) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setArrowWidth(arrowWidth);
 		return this;
 	}
 
 	public DkTooltip arrowHeight(int arrowHeight) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setArrowHeight(arrowHeight);
 		return this;
 	}
 
 	public DkTooltip arrowSourceMargin(int arrowSourceMargin) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setArrowSourceMargin(arrowSourceMargin);
 		return this;
 	}
 
 	public DkTooltip arrowTargetMargin(int arrowTargetMargin) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setArrowTargetMargin(arrowTargetMargin);
 		return this;
 	}
 
+	/**
+	 * Measure tooltip off-window and compute its placement before attaching it, so it is attached
+	 * once at final size and drawn on next frame without cancelled frames or extra root layout passes.
+	 */
+	public DkTooltip premeasure(boolean premeasure) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.premeasure = premeasure;
+		return this;
+	}
+
+	/**
+	 * Give the tooltip view back to pool of the Activity when this tooltip is removed, so next tooltip
+	 * reuses it instead of constructing a new one. Opt-in since the view returned by {@link #show()}
+	 * must then not be used after this tooltip was removed.
+	 */
+	public DkTooltip pooled(boolean pooled) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.pooled = pooled;
+		return this;
+	}
+
+	/**
+	 * Draw this tooltip as a lightweight record of a single overlay view shared by all batched
+	 * tooltips of same root, instead of adding its own view hierarchy. Useful when showing many
+	 * tooltips at once. Enter/exit animations and anchor tracking are not applied in this mode,
+	 * and tooltips with custom view or live content are always rendered per-view.
+	 */
+	public DkTooltip batched(boolean batched) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.batched = batched;
+		return this;
+	}
+
 	public DkTooltip align(Align align) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setAlign(align);
 		return this;
 	}
 
+	/**
+	 * A tooltip is shown once: after it was removed (closed, hidden...) this does nothing and returns null,
+	 * so create a new tooltip via on() to show it again. Setters of a removed tooltip do nothing too.
+	 *
+	 * @return Tooltip view, or null if this tooltip was already removed.
+	 */
 	public TooltipView show() {
+		if (!ownsView()) {
+			return null;
+		}
+		// Caller may keep returned view, so it never goes to the pool to serve (and be closed as) other tooltip
+		if (!pooled) {
+			tooltipView.escaped = true;
+		}
+		if (!showRequested) {
+			tooltipView.markShowRequested();
+		}
+		showRequested = true;
+		final View view = getAnchor();
+		// Anchored item is not bound yet, show when it is
+		if (view == null) {
+			return tooltipView;
+		}
+		if (pendingText != null) {
+			precomputeTextThenShow();
+			return tooltipView;
+		}
 		final Context activityContext = tooltipView.getContext();
 		if (activityContext instanceof Activity) {
-			final ViewGroup decorView = rootView != null ?
+			targetRoot = rootView != null ?
 				(ViewGroup) rootView :
 				(ViewGroup) ((Activity) activityContext).getWindow().getDecorView();
 
-			view.postDelayed(new Runnable() {
-				@Override
-				public void run() {
-					final Rect rect = new Rect();
-					view.getGlobalVisibleRect(rect);
+			if (isReadyToAttach(view)) {
+				attachTooltip(view);
+			}
+			else if (!pendingAttach) {
+				pendingAttach = true;
+				view.addOnAttachStateChangeListener(anchorAttachListener);
+				if (view.isAttachedToWindow()) {
+					view.getViewTreeObserver().addOnGlobalLayoutListener(readyLayoutListener);
+				}
+			}
+		}
+		return tooltipView;
+	}
+
+	/**
+	 * @return False when tooltip view was removed and maybe given back to pool, this tooltip must not touch it anymore.
+	 */
+	private boolean ownsView() {
+		return tooltipView.owner == this;
+	}
 
-					final Rect rootGlobalRect = new Rect();
-					final Point rootGlobalOffset = new Point();
-					decorView.getGlobalVisibleRect(rootGlobalRect, rootGlobalOffset);
+	private View getAnchor() {
+		return anchorRef != null ? anchorRef.get() : null;
+	}
 
-					int[] location = new int[2];
-					view.getLocationOnScreen(location);
+	private boolean isReadyToAttach(View view) {
+		return view.isAttachedToWindow()
+			&& view.isLaidOut()
+			&& !view.isLayoutRequested()
+			&& targetRoot.isAttachedToWindow()
+			&& targetRoot.isLaidOut();
+	}
 
-					rect.left = location[0];
-					rect.top -= rootGlobalOffset.y;
-					rect.bottom -= rootGlobalOffset.y;
-					rect.left -= rootGlobalOffset.x;
-					rect.right -= rootGlobalOffset.x;
+	private void attachIfReady() {
+		final View view = getAnchor();
+		if (view == null) {
+			cancelPendingShow();
+		}
+		else if (pendingAttach && isReadyToAttach(view)) {
+			cancelPendingShow();
+			attachTooltip(view);
+		}
+	}
 
-					decorView.addView(tooltipView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+	private void cancelPendingShow() {
+		if (pendingAttach) {
+			pendingAttach = false;
+			final View view = getAnchor();
+			if (view != null) {
+				view.removeOnAttachStateChangeListener(anchorAttachListener);
+				view.getViewTreeObserver().removeOnGlobalLayoutListener(readyLayoutListener);
+			}
+		}
+	}
 
-					tooltipView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-						@Override
-						public boolean onPreDraw() {
+	private void attachTooltip(View view) {
+		final boolean traced = TooltipTrace.begin("DkTooltip.attach");
+		try {
+			final ViewGroup decorView = targetRoot;
+			final Rect rect = anchorRect;
+			view.getGlobalVisibleRect(rect);
 
-							tooltipView.setup(rect, decorView.getWidth());
+			decorView.getGlobalVisibleRect(rootGlobalRect, rootGlobalOffset);
 
-							tooltipView.getViewTreeObserver().removeOnPreDrawListener(this);
+			final int[] location = anchorLocation;
+			view.getLocationOnScreen(location);
 
-							return false;
-						}
-					});
+			rect.left = location[0];
+			rect.top -= rootGlobalOffset.y;
+			rect.bottom -= rootGlobalOffset.y;
+			rect.left -= rootGlobalOffset.x;
+			rect.right -= rootGlobalOffset.x;
+
+			final TooltipHostLayout host = TooltipHostLayout.of(decorView);
+
+			// Reuse layout params from previous show
+			ViewGroup.LayoutParams layoutParams = tooltipView.getLayoutParams();
+			if (layoutParams == null) {
+				layoutParams = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+			}
+
+			if (batched && !tooltipView.hasCustomView() && !tooltipView.isLiveContent()) {
+				// Shadow must come from cached bitmap since overlay is drawn without software layer
+				tooltipView.setShadowCached(true);
+				tooltipView.premeasure(rect, decorView.getWidth(), decorView.getHeight(), computeRootBounds(decorView), host.getOccupancy());
+				record = tooltipView.createRecord();
+				record.owner = this;
+				TooltipOverlayView.of(host).addRecord(record);
+
+				// Record draws itself, so the view can serve other tooltips right away
+				if (recyclerAnchor != null) {
+					tooltipView.removeOnAttachStateChangeListener(recyclerAnchor);
 				}
-			}, 100);
+				tooltipView.recycle();
+				return;
+			}
+
+			if (premeasure || tooltipView.isAutoPosition()) {
+				tooltipView.premeasure(rect, decorView.getWidth(), decorView.getHeight(), computeRootBounds(decorView), host.getOccupancy());
+				layoutParams.width = tooltipView.getMeasuredWidth();
+				layoutParams.height = tooltipView.getMeasuredHeight();
+				host.addTooltip(tooltipView, layoutParams);
+				// Size and translation are final, so next tooltip shown before this one is drawn already avoids it
+				host.occupy(tooltipView, rect);
+
+				tooltipView.setupPremeasured();
+			}
+			else {
+				layoutParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+				layoutParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+				host.addTooltip(tooltipView, layoutParams);
+
+				tooltipView.getViewTreeObserver().addOnPreDrawListener(setupOnPreDrawListener);
+			}
+
+			anchorTracker.start(view);
 		}
-		return tooltipView;
+		finally {
+			TooltipTrace.end(traced);
+		}
+	}
+
+	/**
+	 * @return Bounds of given root where tooltip can be placed, without system bars when root is drawn under them.
+	 */
+	private Rect computeRootBounds(ViewGroup root) {
+		final Rect bounds = rootBounds;
+		bounds.set(0, 0, root.getWidth(), root.getHeight());
+
+		if (root == root.getRootView()) {
+			final WindowInsetsCompat insets = ViewCompat.getRootWindowInsets(root);
+			if (insets != null) {
+				final Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+				bounds.left += systemBars.left;
+				bounds.top += systemBars.top;
+				bounds.right -= systemBars.right;
+				bounds.bottom -= systemBars.bottom;
+			}
+		}
+		return bounds;
+	}
+
+	void onAnchorBound(View itemView) {
+		if (!ownsView()) {
+			return;
+		}
+		this.anchorRef = new WeakReference<>(itemView);
+		if (tooltipView.getParent() != null) {
+			anchorTracker.setAnchor(itemView);
+			tooltipView.setVisibility(View.VISIBLE);
+		}
+		else if (showRequested && !pendingAttach && record == null) {
+			show();
+		}
+	}
+
+	void onAnchorUnbound() {
+		if (!ownsView()) {
+			return;
+		}
+		cancelPendingShow();
+		this.anchorRef = null;
+		anchorTracker.setAnchor(null);
+		if (tooltipView.getParent() != null) {
+			tooltipView.setVisibility(View.INVISIBLE);
+		}
+	}
+
+	/**
+	 * Bind this tooltip to given lifecycle, when it is stopped or destroyed, the tooltip is removed
+	 * and releases everything: pending show, timers, animations, listeners and view references.
+	 * Tooltips created for Activity (LifecycleOwner), Fragment or DialogFragment are bound automatically.
+	 */
+	public DkTooltip bindLifecycle(LifecycleOwner owner) {
+		if (lifecycle != null) {
+			lifecycle.removeObserver(lifecycleObserver);
+			lifecycle = null;
+		}
+		if (owner != null && ownsView()) {
+			lifecycle = owner.getLifecycle();
+			lifecycle.addObserver(lifecycleObserver);
+		}
+		return this;
+	}
+
+	private void release() {
+		if (record != null) {
+			record.remove();
+			record = null;
+		}
+		if (ownsView()) {
+			tooltipView.cancelAnimations();
+			tooltipView.closeNow();
+		}
+		onRemoved();
+	}
+
+	/**
+	 * Called when tooltip is removed in any way (closed, auto hidden, hidden on click, anchor detached...),
+	 * drop listeners and references so nothing keeps this tooltip alive until its lifecycle is stopped.
+	 */
+	void onRemoved() {
+		showRequested = false;
+		++textGeneration;
+		if (lifecycle != null) {
+			lifecycle.removeObserver(lifecycleObserver);
+			lifecycle = null;
+		}
+		if (recyclerAnchor != null) {
+			tooltipView.removeOnAttachStateChangeListener(recyclerAnchor);
+			recyclerAnchor.release();
+		}
+		cancelPendingShow();
+		anchorTracker.stop();
+		// Still attached when called from view removal, so listener is removed from window observer
+		tooltipView.getViewTreeObserver().removeOnPreDrawListener(setupOnPreDrawListener);
+
+		anchorRef = null;
+		rootView = null;
+		targetRoot = null;
+		pendingText = null;
+		recyclerAnchor = null;
+		record = null;
 	}
 
 	public void close() {
-		tooltipView.close();
+		showRequested = false;
+		++textGeneration;
+		if (recyclerAnchor != null) {
+			recyclerAnchor.release();
+		}
+		if (record != null) {
+			record.remove();
+			record = null;
+			return;
+		}
+		if (!ownsView()) {
+			return;
+		}
+		// Not attached yet (waiting for anchor, text or item bind): no exit animation would ever run
+		if (pendingAttach || tooltipView.getParent() == null) {
+			cancelPendingShow();
+			tooltipView.closeNow();
+		}
+		else {
+			tooltipView.close();
+		}
 	}
 
 	public DkTooltip duration(long duration) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setDuration(duration);
 		return this;
 	}
 
+	/**
+	 * Change attributes of this tooltip in one transaction: all changes made by given updater cause
+	 * at most one relayout and one invalidate, instead of one per change. Must be called on main thread.
+	 */
+	public DkTooltip update(Updater updater) {
+		if (!ownsView()) {
+			return this;
+		}
+		tooltipView.beginUpdate();
+		try {
+			updater.update(this);
+		}
+		finally {
+			tooltipView.commit();
+		}
+		return this;
+	}
+
+	/**
+	 * Apply all attributes of given style at once, its paints are shared with other tooltips of the style.
+	 * Attributes set after this override the style for this tooltip only.
+	 */
+	public DkTooltip style(TooltipStyle style) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setStyle(style);
+		return this;
+	}
+
 	public DkTooltip color(int color) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setColor(color);
 		return this;
 	}
 
 	public DkTooltip color(Paint paint) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setPaint(paint);
 		return this;
 	}
 
 	public DkTooltip onDisplay(ListenerDisplay listener) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setListenerDisplay(listener);
 		return this;
 	}
 
 	public DkTooltip onHide(ListenerHide listener) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setListenerHide(listener);
 		return this;
 	}
 
+	/**
+	 * Report rendering cost (latency to first draw, measure/layout passes, cancelled frames,
+	 * path rebuilds, draw and animation durations) of this tooltip when it is removed.
+	 */
+	public DkTooltip metrics(ListenerMetrics listener) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setMetricsListener(listener);
+		return this;
+	}
+
 	public DkTooltip padding(int left, int top, int right, int bottom) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.paddingTop = top;
 		this.tooltipView.paddingBottom = bottom;
 		this.tooltipView.paddingLeft = left;
@@ -256,77 +855,222 @@ public class DkTooltip {
 	}
 
 	public DkTooltip animation(TooltipAnimation tooltipAnimation) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setTooltipAnimation(tooltipAnimation);
 		return this;
 	}
 
 	public DkTooltip text(String text) {
-		this.tooltipView.setText(text);
+		if (!ownsView()) {
+			return this;
+		}
+		if (precomputeText && tooltipView.getTextView() != null) {
+			pendingText = text;
+			++textGeneration;
+		}
+		else {
+			this.tooltipView.setText(text);
+		}
 		return this;
 	}
 
 	public DkTooltip text(@StringRes int text) {
-		this.tooltipView.setText(text);
+		if (!ownsView()) {
+			return this;
+		}
+		if (precomputeText && tooltipView.getTextView() != null) {
+			pendingText = tooltipView.getContext().getText(text);
+			++textGeneration;
+		}
+		else {
+			this.tooltipView.setText(text);
+		}
+		return this;
+	}
+
+	/**
+	 * Parse and lay out text on background executor, tooltip is attached only after its text is ready.
+	 * Call this before {@link #text(String)} or {@link #text(int)}.
+	 */
+	public DkTooltip precomputeText(boolean precomputeText) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.precomputeText = precomputeText;
 		return this;
 	}
 
+	/**
+	 * Executor which is used to precompute text of tooltips, by default a single background thread.
+	 */
+	public static void setTextExecutor(Executor executor) {
+		TextPrecomputer.setExecutor(executor);
+	}
+
+	private void precomputeTextThenShow() {
+		if (textPrecomputing) {
+			return;
+		}
+		// Custom view was set after text, there is no built-in text view to precompute for
+		if (tooltipView.getTextView() == null) {
+			setTextNow(pendingText);
+			pendingText = null;
+			show();
+			return;
+		}
+		textPrecomputing = true;
+
+		final int generation = textGeneration;
+		TextPrecomputer.precompute(tooltipView.getTextView(), pendingText, text -> {
+			textPrecomputing = false;
+			// Text was changed meanwhile (so precompute again), or tooltip was closed
+			if (generation == textGeneration && ownsView()) {
+				final TextView textView = tooltipView.getTextView();
+				if (textView == null) {
+					setTextNow(pendingText);
+					pendingText = null;
+				}
+				// Text attributes (style, size...) changed meanwhile are rejected by setPrecomputedText(), precompute again
+				else if (text.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+					pendingText = null;
+					TextViewCompat.setPrecomputedText(textView, text);
+				}
+			}
+			if (showRequested) {
+				show();
+			}
+		});
+	}
+
+	private void setTextNow(Object text) {
+		if (text instanceof String) {
+			tooltipView.setText((String) text);
+		}
+		else {
+			tooltipView.setText((CharSequence) text);
+		}
+	}
+
 	public DkTooltip corner(int corner) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setCorner(corner);
 		return this;
 	}
 
+	/**
+	 * Show frequently changing text (timer, progress...) in a stable size which fits given template,
+	 * then update it via {@link #liveText(CharSequence)} without any relayout. Call after text attributes.
+	 * Live tooltip is always rendered per-view, even in batched mode.
+	 */
+	public DkTooltip liveContent(String template) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setLiveContent(template);
+		return this;
+	}
+
+	/**
+	 * Same as {@link #liveContent(String)} but with fixed text width in pixels.
+	 */
+	public DkTooltip liveContentWidth(int width) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setLiveContentWidth(width);
+		return this;
+	}
+
+	public DkTooltip liveText(CharSequence text) {
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setLiveText(text);
+		return this;
+	}
+
 	public DkTooltip textColor(int textColor) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setTextColor(textColor);
 		return this;
 	}
 
 	public DkTooltip textTypeFace(Typeface typeface) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setTextTypeFace(typeface);
 		return this;
 	}
 
 	public DkTooltip textSize(int unit, float textSize) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setTextSize(unit, textSize);
 		return this;
 	}
 
 	public DkTooltip margin(int left, int top, int right, int bottom) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setMargin(left, top, right, bottom);
 		return this;
 	}
 
 	public DkTooltip setTextGravity(int textGravity) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setTextGravity(textGravity);
 		return this;
 	}
 
 	public DkTooltip clickToHide(boolean clickToHide) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setClickToHide(clickToHide);
 		return this;
 	}
 
 	public DkTooltip autoHide(boolean autoHide) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setAutoHide(autoHide);
 		return this;
 	}
 
 	public DkTooltip autoHide(boolean autoHide, long duration) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setAutoHide(autoHide);
 		this.tooltipView.setDuration(duration);
 		return this;
 	}
 
 	public DkTooltip distanceWithView(int distance) {
+		if (!ownsView()) {
+			return this;
+		}
 		this.tooltipView.setDistanceWithView(distance);
 		return this;
 	}
 
 	public DkTooltip border(int color, float width) {
-		Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-		borderPaint.setColor(color);
-		borderPaint.setStyle(Paint.Style.STROKE);
-		borderPaint.setStrokeWidth(width);
-		this.tooltipView.setBorderPaint(borderPaint);
+		if (!ownsView()) {
+			return this;
+		}
+		this.tooltipView.setBorder(color, width);
 		return this;
 	}
 }
\ No newline at end of file
@@ -23,4 +23,9 @@ class FadeTooltipAnimation implements DkTooltip.TooltipAnimation {
 	public void animateExit(View view, Animator.AnimatorListener animatorListener) {
 		view.animate().alpha(0).setDuration(fadeDuration).setListener(animatorListener);
 	}
+
+	@Override
+	public boolean promoteToHardwareLayer() {
+		return true;
+	}
 }
\ No newline at end of file
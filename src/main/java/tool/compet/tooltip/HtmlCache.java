@@ -0,0 +1,90 @@
+package tool.compet.tooltip;
+
+import android.os.Build;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.util.LruCache;
+
+/**
+ * Process-wide cache of parsed html tooltip text. Cached values are immutable,
+ * so they can be shared by all tooltips. This class is thread-safe.
+ */
+final class HtmlCache {
+	private static final LruCache<Key, Spanned> cache = new LruCache<>(64);
+
+	private HtmlCache() {
+	}
+
+	static Spanned fromHtml(String source) {
+		return fromHtml(source, 0);
+	}
+
+	/**
+	 * @param flags Flags of {@link Html#fromHtml(String, int)}, ignored before Android N.
+	 */
+	static Spanned fromHtml(String source, int flags) {
+		final Key key = new Key(source, flags);
+		Spanned spanned = cache.get(key);
+		if (spanned == null) {
+			spanned = new SpannedString(parse(source, flags));
+			cache.put(key, spanned);
+		}
+		return spanned;
+	}
+
+	@SuppressWarnings("deprecation")
+	private static Spanned parse(String source, int flags) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+			return Html.fromHtml(source, flags);
+		}
+		return Html.fromHtml(source);
+	}
+
+	static void setMaxSize(int maxSize) {
+		cache.resize(maxSize);
+	}
+
+	static int hitCount() {
+		return cache.hitCount();
+	}
+
+	static int missCount() {
+		return cache.missCount();
+	}
+
+	static int evictionCount() {
+		return cache.evictionCount();
+	}
+
+	static void clear() {
+		cache.evictAll();
+	}
+
+	private static final class Key {
+		final String source;
+		final int flags;
+
+		Key(String source, int flags) {
+			this.source = source;
+			this.flags = flags;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return flags == other.flags && source.equals(other.source);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * source.hashCode() + flags;
+		}
+	}
+}
@@ -6,51 +6,76 @@ import android.view.Window;
 
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LifecycleOwner;
 
+import java.lang.ref.WeakReference;
+
+// Holds host weakly, so a tooltip never keeps its screen alive
 class MyContext {
-	private Fragment fragment;
-	private Context context;
-	private Activity activity;
+	private WeakReference<Fragment> fragment;
+	private WeakReference<Context> context;
+	private WeakReference<Activity> activity;
 
 	MyContext(Activity activity) {
-		this.activity = activity;
+		this.activity = new WeakReference<>(activity);
 	}
 
 	MyContext(Fragment fragment) {
-		this.fragment = fragment;
+		this.fragment = new WeakReference<>(fragment);
 	}
 
 	MyContext(Context context) {
-		this.context = context;
+		this.context = new WeakReference<>(context);
 	}
 
 	public Context getContext() {
 		if (activity != null) {
-			return activity;
+			return activity.get();
 		}
 		else {
-			return fragment.getActivity();
+			final Fragment fragment = this.fragment.get();
+			return fragment != null ? fragment.getActivity() : null;
 		}
 	}
 
 	public Activity getActivity() {
 		if (activity != null) {
-			return activity;
+			return activity.get();
 		}
 		else {
-			return fragment.getActivity();
+			final Fragment fragment = this.fragment.get();
+			return fragment != null ? fragment.getActivity() : null;
 		}
 	}
 
 	public Window getWindow() {
 		if (activity != null) {
-			return activity.getWindow();
+			final Activity activity = this.activity.get();
+			return activity != null ? activity.getWindow() : null;
 		}
 		else {
+			final Fragment fragment = this.fragment.get();
+			if (fragment == null) {
+				return null;
+			}
 			if (fragment instanceof DialogFragment) {
 				return ((DialogFragment) fragment).getDialog().getWindow();
 			}
 			return fragment.getActivity().getWindow();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * @return Lifecycle of host Fragment (includes DialogFragment) or Activity, or null if host has no lifecycle.
+	 */
+	public LifecycleOwner getLifecycleOwner() {
+		if (fragment != null) {
+			return fragment.get();
+		}
+		if (activity != null) {
+			final Activity activity = this.activity.get();
+			return activity instanceof LifecycleOwner ? (LifecycleOwner) activity : null;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,180 @@
+package tool.compet.tooltip;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Anchors a tooltip to a RecyclerView item by adapter position or stable id instead of by item view.
+ * When the item is scrolled out, tooltip is hidden, and when the item is bound again (maybe to another
+ * view holder), tooltip follows the new item view. Only child attach/detach callbacks are observed,
+ * so scrolling costs one view holder lookup per attached/detached child.
+ */
+final class RecyclerAnchor extends RecyclerView.AdapterDataObserver
+	implements RecyclerView.OnChildAttachStateChangeListener, ViewTreeObserver.OnGlobalLayoutListener, View.OnAttachStateChangeListener {
+
+	private final RecyclerView recyclerView;
+	private final boolean byStableId;
+	private final int adapterPosition;
+	private final long stableId;
+	private DkTooltip tooltip;
+	private RecyclerView.Adapter<?> adapter;
+	private View boundView;
+	private boolean resolvePending;
+
+	private RecyclerAnchor(RecyclerView recyclerView, boolean byStableId, int adapterPosition, long stableId) {
+		this.recyclerView = recyclerView;
+		this.byStableId = byStableId;
+		this.adapterPosition = adapterPosition;
+		this.stableId = stableId;
+	}
+
+	static RecyclerAnchor byAdapterPosition(RecyclerView recyclerView, int adapterPosition) {
+		return new RecyclerAnchor(recyclerView, false, adapterPosition, RecyclerView.NO_ID);
+	}
+
+	static RecyclerAnchor byStableId(RecyclerView recyclerView, long stableId) {
+		return new RecyclerAnchor(recyclerView, true, RecyclerView.NO_POSITION, stableId);
+	}
+
+	RecyclerView getRecyclerView() {
+		return recyclerView;
+	}
+
+	/**
+	 * Start observing the list.
+	 *
+	 * @return Item view which is currently bound to anchored item, or null if it is not laid out.
+	 */
+	View bind(DkTooltip tooltip, TooltipView tooltipView) {
+		this.tooltip = tooltip;
+		this.adapter = recyclerView.getAdapter();
+		recyclerView.addOnChildAttachStateChangeListener(this);
+		if (adapter != null) {
+			adapter.registerAdapterDataObserver(this);
+		}
+		tooltipView.addOnAttachStateChangeListener(this);
+
+		return boundView = findItemView();
+	}
+
+	void release() {
+		if (tooltip == null) {
+			return;
+		}
+		recyclerView.removeOnChildAttachStateChangeListener(this);
+		if (adapter != null) {
+			adapter.unregisterAdapterDataObserver(this);
+			adapter = null;
+		}
+		if (resolvePending) {
+			resolvePending = false;
+			recyclerView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+		}
+		boundView = null;
+		tooltip = null;
+	}
+
+	private View findItemView() {
+		final RecyclerView.ViewHolder holder = byStableId ?
+			recyclerView.findViewHolderForItemId(stableId) :
+			recyclerView.findViewHolderForAdapterPosition(adapterPosition);
+		return holder != null ? holder.itemView : null;
+	}
+
+	private boolean isAnchoredItem(View child) {
+		final RecyclerView.ViewHolder holder = recyclerView.getChildViewHolder(child);
+		if (holder == null) {
+			return false;
+		}
+		// Absolute position needs RecyclerView 1.2.0+
+		return byStableId ?
+			holder.getItemId() == stableId :
+			holder.getAbsoluteAdapterPosition() == adapterPosition;
+	}
+
+	private void updateBoundView(View itemView) {
+		if (itemView == boundView) {
+			return;
+		}
+		final boolean wasBound = boundView != null;
+		boundView = itemView;
+
+		if (itemView != null) {
+			tooltip.onAnchorBound(itemView);
+		}
+		else if (wasBound) {
+			tooltip.onAnchorUnbound();
+		}
+	}
+
+	@Override
+	public void onChildViewAttachedToWindow(View child) {
+		if (child != boundView && isAnchoredItem(child)) {
+			updateBoundView(child);
+		}
+	}
+
+	@Override
+	public void onChildViewDetachedFromWindow(View child) {
+		if (child == boundView) {
+			updateBoundView(null);
+		}
+	}
+
+	// Item may be bound to other view without being detached when data changed, so re-resolve after next layout
+
+	private void scheduleResolve() {
+		if (!resolvePending && tooltip != null) {
+			resolvePending = true;
+			recyclerView.getViewTreeObserver().addOnGlobalLayoutListener(this);
+		}
+	}
+
+	@Override
+	public void onGlobalLayout() {
+		resolvePending = false;
+		recyclerView.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+		if (tooltip != null) {
+			updateBoundView(findItemView());
+		}
+	}
+
+	@Override
+	public void onChanged() {
+		scheduleResolve();
+	}
+
+	@Override
+	public void onItemRangeChanged(int positionStart, int itemCount) {
+		scheduleResolve();
+	}
+
+	@Override
+	public void onItemRangeInserted(int positionStart, int itemCount) {
+		scheduleResolve();
+	}
+
+	@Override
+	public void onItemRangeRemoved(int positionStart, int itemCount) {
+		scheduleResolve();
+	}
+
+	@Override
+	public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+		scheduleResolve();
+	}
+
+	// Tooltip view was removed
+
+	@Override
+	public void onViewAttachedToWindow(View v) {
+	}
+
+	@Override
+	public void onViewDetachedFromWindow(View v) {
+		v.removeOnAttachStateChangeListener(this);
+		release();
+	}
+}
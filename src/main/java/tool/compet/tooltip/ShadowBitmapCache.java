@@ -0,0 +1,94 @@
+package tool.compet.tooltip;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.LruCache;
+
+/**
+ * Process-wide cache of pre-blurred bubble shadows. Tooltips with same style and geometry
+ * blur only once, after that they just blit the cached bitmap.
+ */
+final class ShadowBitmapCache {
+	private static final LruCache<Key, Bitmap> cache = new LruCache<Key, Bitmap>(defaultMaxBytes()) {
+		@Override
+		protected int sizeOf(Key key, Bitmap bitmap) {
+			return bitmap.getByteCount();
+		}
+	};
+
+	private ShadowBitmapCache() {
+	}
+
+	private static int defaultMaxBytes() {
+		return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 64);
+	}
+
+	static void setMaxBytes(int maxBytes) {
+		cache.resize(maxBytes);
+	}
+
+	static int sizeBytes() {
+		return cache.size();
+	}
+
+	static void clear() {
+		cache.evictAll();
+	}
+
+	static Bitmap obtain(Key key, Path bubblePath) {
+		Bitmap bitmap = cache.get(key);
+		if (bitmap == null) {
+			bitmap = render(key, bubblePath);
+			cache.put(new Key(new BubbleKey(key.bubble), key.shadowWidth, key.shadowColor), bitmap);
+		}
+		return bitmap;
+	}
+
+	private static Bitmap render(Key key, Path bubblePath) {
+		final Bitmap bitmap = Bitmap.createBitmap(key.bubble.width, key.bubble.height, Bitmap.Config.ARGB_8888);
+		final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		paint.setStyle(Paint.Style.FILL);
+		paint.setColor(key.shadowColor);
+		paint.setMaskFilter(new BlurMaskFilter(key.shadowWidth, BlurMaskFilter.Blur.NORMAL));
+		new Canvas(bitmap).drawPath(bubblePath, paint);
+		return bitmap;
+	}
+
+	static final class Key {
+		final BubbleKey bubble;
+		final int shadowWidth;
+		final int shadowColor;
+
+		Key(BubbleKey bubble, int shadowWidth, int shadowColor) {
+			this.bubble = bubble;
+			this.shadowWidth = shadowWidth;
+			this.shadowColor = shadowColor;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) o;
+			return bubble.equals(other.bubble)
+				&& shadowWidth == other.shadowWidth
+				&& shadowColor == other.shadowColor;
+		}
+
+		@Override
+		public int hashCode() {
+			// Computed by hand to avoid boxing and varargs allocation of Objects.hash()
+			int result = bubble.hashCode();
+			result = 31 * result + shadowWidth;
+			result = 31 * result + shadowColor;
+			return result;
+		}
+	}
+}
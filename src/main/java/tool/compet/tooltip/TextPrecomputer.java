@@ -0,0 +1,58 @@
+package tool.compet.tooltip;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Parses html and computes text layout (measurement, line breaking) of tooltip text on background
+ * executor, so main thread only needs to place and draw the tooltip.
+ */
+final class TextPrecomputer {
+	interface Callback {
+		void onTextReady(PrecomputedTextCompat text);
+	}
+
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+	private static Executor executor;
+
+	private TextPrecomputer() {
+	}
+
+	static synchronized void setExecutor(Executor executor) {
+		TextPrecomputer.executor = executor;
+	}
+
+	private static synchronized Executor getExecutor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "DkTooltip-text");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Must be called on main thread, callback is also invoked on main thread.
+	 *
+	 * @param source Html string or already resolved text.
+	 */
+	static void precompute(TextView textView, Object source, Callback callback) {
+		// Params must be read on main thread
+		final PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+
+		getExecutor().execute(() -> {
+			final CharSequence text = source instanceof String ? HtmlCache.fromHtml((String) source) : (CharSequence) source;
+			final PrecomputedTextCompat precomputedText = PrecomputedTextCompat.create(text, params);
+			mainHandler.post(() -> callback.onTextReady(precomputedText));
+		});
+	}
+}
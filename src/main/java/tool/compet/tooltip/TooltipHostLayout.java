@@ -0,0 +1,180 @@
+package tool.compet.tooltip;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import tool.compet.tooltip.geometry.OccupancyGrid;
+
+/**
+ * Container of all tooltips of a root (window or given root view), created lazily on first show
+ * and kept until the root is gone. Its size only follows the root, so layout requests of tooltips
+ * (add, remove, resize) are absorbed here and served by laying out this container alone just before
+ * next draw, instead of laying out whole root hierarchy. Children are placed at top-left and positioned
+ * by translation, later added tooltips are drawn above earlier ones.
+ * <p>
+ * It also coordinates placement: bubbles and anchors of shown tooltips are kept in a spatial index,
+ * updated per added or removed tooltip, so AUTO tooltips can be placed without colliding with them.
+ */
+@SuppressLint("ViewConstructor")
+final class TooltipHostLayout extends ViewGroup {
+	private static final int OCCUPANCY_CELL_SIZE = 128;
+
+	private boolean selfLayoutScheduled;
+	private final OccupancyGrid occupancy = new OccupancyGrid(OCCUPANCY_CELL_SIZE);
+
+	private final ViewTreeObserver.OnPreDrawListener selfLayoutListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			getViewTreeObserver().removeOnPreDrawListener(this);
+			selfLayoutScheduled = false;
+			layoutSelf();
+			return true;
+		}
+	};
+
+	private TooltipHostLayout(Context context) {
+		super(context);
+		setOnHierarchyChangeListener(new OnHierarchyChangeListener() {
+			@Override
+			public void onChildViewAdded(View parent, View child) {
+			}
+
+			@Override
+			public void onChildViewRemoved(View parent, View child) {
+				if (child instanceof TooltipView) {
+					release((TooltipView) child);
+				}
+			}
+		});
+	}
+
+	static TooltipHostLayout of(ViewGroup root) {
+		for (int index = root.getChildCount() - 1; index >= 0; --index) {
+			final View child = root.getChildAt(index);
+			if (child instanceof TooltipHostLayout) {
+				final TooltipHostLayout host = (TooltipHostLayout) child;
+				// Keep tooltips above content which was added to root after this host
+				if (index != root.getChildCount() - 1) {
+					host.bringToFront();
+				}
+				return host;
+			}
+		}
+		final TooltipHostLayout host = new TooltipHostLayout(root.getContext());
+		root.addView(host, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+		return host;
+	}
+
+	void addTooltip(View tooltip, ViewGroup.LayoutParams layoutParams) {
+		addView(tooltip, layoutParams);
+	}
+
+	OccupancyGrid getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Mark area of given placed tooltip and its anchor as occupied, replacing previous area of the tooltip.
+	 * Measured size is used, so a premeasured tooltip can be marked right after it was added, before its layout.
+	 */
+	void occupy(TooltipView tooltip, Rect anchor) {
+		release(tooltip);
+		final int left = (int) tooltip.getX();
+		final int top = (int) tooltip.getY();
+		tooltip.bubbleHandle = occupancy.add(left, top, left + tooltip.getMeasuredWidth(), top + tooltip.getMeasuredHeight());
+		tooltip.anchorHandle = occupancy.add(anchor.left, anchor.top, anchor.right, anchor.bottom);
+	}
+
+	void release(TooltipView tooltip) {
+		occupancy.remove(tooltip.bubbleHandle);
+		occupancy.remove(tooltip.anchorHandle);
+		tooltip.bubbleHandle = tooltip.anchorHandle = OccupancyGrid.NO_HANDLE;
+	}
+
+	/**
+	 * Same as {@link #occupy(TooltipView, Rect)} for a batched tooltip drawn by an overlay of this host.
+	 */
+	void occupy(TooltipRecord record) {
+		release(record);
+		final int left = (int) record.translationX;
+		final int top = (int) record.translationY;
+		record.bubbleHandle = occupancy.add(left, top, left + record.width, top + record.height);
+		record.anchorHandle = occupancy.add(record.anchor.left, record.anchor.top, record.anchor.right, record.anchor.bottom);
+	}
+
+	void release(TooltipRecord record) {
+		occupancy.remove(record.bubbleHandle);
+		occupancy.remove(record.anchorHandle);
+		record.bubbleHandle = record.anchorHandle = OccupancyGrid.NO_HANDLE;
+	}
+
+	@Override
+	public void requestLayout() {
+		// Before first layout, parent must lay out this host anyway
+		if (!isLaidOut() || getParent() == null || isInLayout()) {
+			super.requestLayout();
+			return;
+		}
+		// Mark only this host, without propagating to parent
+		forceLayout();
+		if (!selfLayoutScheduled && isAttachedToWindow()) {
+			selfLayoutScheduled = true;
+			getViewTreeObserver().addOnPreDrawListener(selfLayoutListener);
+			// Pre-draw is dispatched only in a traversal
+			invalidate();
+		}
+	}
+
+	private void layoutSelf() {
+		if (!isLayoutRequested()) {
+			return;
+		}
+		measure(MeasureSpec.makeMeasureSpec(getWidth(), MeasureSpec.EXACTLY),
+			MeasureSpec.makeMeasureSpec(getHeight(), MeasureSpec.EXACTLY));
+		layout(getLeft(), getTop(), getRight(), getBottom());
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		if (selfLayoutScheduled) {
+			selfLayoutScheduled = false;
+			getViewTreeObserver().removeOnPreDrawListener(selfLayoutListener);
+		}
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final int width = MeasureSpec.getSize(widthMeasureSpec);
+		final int height = MeasureSpec.getSize(heightMeasureSpec);
+		setMeasuredDimension(width, height);
+
+		final int childWidthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+		final int childHeightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+		for (int index = 0, N = getChildCount(); index < N; ++index) {
+			final View child = getChildAt(index);
+			if (child.getVisibility() != GONE) {
+				measureChild(child, childWidthSpec, childHeightSpec);
+			}
+		}
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		for (int index = 0, N = getChildCount(); index < N; ++index) {
+			final View child = getChildAt(index);
+			if (child.getVisibility() != GONE) {
+				child.layout(0, 0, child.getMeasuredWidth(), child.getMeasuredHeight());
+			}
+		}
+	}
+
+	@Override
+	public boolean shouldDelayChildPressedState() {
+		return false;
+	}
+}
@@ -0,0 +1,123 @@
+package tool.compet.tooltip;
+
+/**
+ * Rendering cost of one tooltip show, reported via {@link DkTooltip.ListenerMetrics} when the tooltip is removed.
+ * Times are in nanoseconds, -1 means not measured (for eg,. tooltip was removed before first draw).
+ */
+public final class TooltipMetrics {
+	long showNanos;
+	long firstDrawLatencyNanos = -1;
+	int measureCount;
+	int layoutCount;
+	int cancelledPreDrawCount;
+	int bubbleRebuildCount;
+	int drawCount;
+	long drawTotalNanos;
+	long drawMaxNanos;
+	long enterAnimationNanos = -1;
+	long exitAnimationNanos = -1;
+	int enterFrameCount;
+	int exitFrameCount;
+
+	void reset() {
+		showNanos = 0;
+		firstDrawLatencyNanos = -1;
+		measureCount = 0;
+		layoutCount = 0;
+		cancelledPreDrawCount = 0;
+		bubbleRebuildCount = 0;
+		drawCount = 0;
+		drawTotalNanos = 0;
+		drawMaxNanos = 0;
+		enterAnimationNanos = -1;
+		exitAnimationNanos = -1;
+		enterFrameCount = 0;
+		exitFrameCount = 0;
+	}
+
+	void onDraw(long startNanos, long endNanos) {
+		if (drawCount++ == 0 && showNanos > 0) {
+			firstDrawLatencyNanos = endNanos - showNanos;
+		}
+		final long duration = endNanos - startNanos;
+		drawTotalNanos += duration;
+		if (duration > drawMaxNanos) {
+			drawMaxNanos = duration;
+		}
+	}
+
+	/**
+	 * @return Latency from show() to end of first onDraw of the tooltip.
+	 */
+	public long getFirstDrawLatencyNanos() {
+		return firstDrawLatencyNanos;
+	}
+
+	public int getMeasureCount() {
+		return measureCount;
+	}
+
+	public int getLayoutCount() {
+		return layoutCount;
+	}
+
+	/**
+	 * @return Number of frames which were cancelled (pre-draw returned false) to set up the tooltip.
+	 */
+	public int getCancelledPreDrawCount() {
+		return cancelledPreDrawCount;
+	}
+
+	/**
+	 * @return Number of times bubble path was rebuilt (cache lookup included).
+	 */
+	public int getBubbleRebuildCount() {
+		return bubbleRebuildCount;
+	}
+
+	public int getDrawCount() {
+		return drawCount;
+	}
+
+	public long getDrawTotalNanos() {
+		return drawTotalNanos;
+	}
+
+	public long getDrawMaxNanos() {
+		return drawMaxNanos;
+	}
+
+	public long getEnterAnimationNanos() {
+		return enterAnimationNanos;
+	}
+
+	public long getExitAnimationNanos() {
+		return exitAnimationNanos;
+	}
+
+	public int getEnterFrameCount() {
+		return enterFrameCount;
+	}
+
+	public int getExitFrameCount() {
+		return exitFrameCount;
+	}
+
+	@Override
+	public String toString() {
+		return "TooltipMetrics{"
+			+ "firstDrawLatencyNanos=" + firstDrawLatencyNanos
+			+ ", measureCount=" + measureCount
+			+ ", layoutCount=" + layoutCount
+			+ ", cancelledPreDrawCount=" + cancelledPreDrawCount
+			+ ", bubbleRebuildCount=" + bubbleRebuildCount
+			+ ", drawCount=" + drawCount
+			+ ", drawTotalNanos=" + drawTotalNanos
+			+ ", drawMaxNanos=" + drawMaxNanos
+			+ ", enterAnimationNanos=" + enterAnimationNanos
+			+ ", exitAnimationNanos=" + exitAnimationNanos
+			+ ", enterFrameCount=" + enterFrameCount
+			+ ", exitFrameCount=" + exitFrameCount
+			+ '}';
+	}
+}
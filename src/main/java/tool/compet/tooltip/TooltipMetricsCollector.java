@@ -0,0 +1,116 @@
+package tool.compet.tooltip;
+
+/**
+ * Aggregates metrics of many tooltips, install it via {@link DkTooltip#metrics(DkTooltip.ListenerMetrics)}
+ * or {@link DkTooltip#setGlobalMetricsListener(DkTooltip.ListenerMetrics)}, and read or forward
+ * its values to telemetry periodically. This class is thread-safe.
+ */
+public class TooltipMetricsCollector implements DkTooltip.ListenerMetrics {
+	private int tooltipCount;
+	private int drawnTooltipCount;
+	private long firstDrawLatencyTotalNanos;
+	private long firstDrawLatencyMaxNanos;
+	private long measureCount;
+	private long layoutCount;
+	private long cancelledPreDrawCount;
+	private long bubbleRebuildCount;
+	private long drawCount;
+	private long drawTotalNanos;
+	private long drawMaxNanos;
+	private int enterAnimationCount;
+	private long enterAnimationTotalNanos;
+	private int exitAnimationCount;
+	private long exitAnimationTotalNanos;
+
+	@Override
+	public synchronized void onMetrics(TooltipMetrics metrics) {
+		++tooltipCount;
+		if (metrics.firstDrawLatencyNanos >= 0) {
+			++drawnTooltipCount;
+			firstDrawLatencyTotalNanos += metrics.firstDrawLatencyNanos;
+			firstDrawLatencyMaxNanos = Math.max(firstDrawLatencyMaxNanos, metrics.firstDrawLatencyNanos);
+		}
+		measureCount += metrics.measureCount;
+		layoutCount += metrics.layoutCount;
+		cancelledPreDrawCount += metrics.cancelledPreDrawCount;
+		bubbleRebuildCount += metrics.bubbleRebuildCount;
+		drawCount += metrics.drawCount;
+		drawTotalNanos += metrics.drawTotalNanos;
+		drawMaxNanos = Math.max(drawMaxNanos, metrics.drawMaxNanos);
+		// Not measured (-1) when tooltip was removed without animation
+		if (metrics.enterAnimationNanos >= 0) {
+			++enterAnimationCount;
+			enterAnimationTotalNanos += metrics.enterAnimationNanos;
+		}
+		if (metrics.exitAnimationNanos >= 0) {
+			++exitAnimationCount;
+			exitAnimationTotalNanos += metrics.exitAnimationNanos;
+		}
+	}
+
+	public synchronized int getTooltipCount() {
+		return tooltipCount;
+	}
+
+	public synchronized long getAverageFirstDrawLatencyNanos() {
+		return drawnTooltipCount == 0 ? 0 : firstDrawLatencyTotalNanos / drawnTooltipCount;
+	}
+
+	public synchronized long getMaxFirstDrawLatencyNanos() {
+		return firstDrawLatencyMaxNanos;
+	}
+
+	public synchronized long getMeasureCount() {
+		return measureCount;
+	}
+
+	public synchronized long getLayoutCount() {
+		return layoutCount;
+	}
+
+	public synchronized long getCancelledPreDrawCount() {
+		return cancelledPreDrawCount;
+	}
+
+	public synchronized long getBubbleRebuildCount() {
+		return bubbleRebuildCount;
+	}
+
+	public synchronized long getDrawCount() {
+		return drawCount;
+	}
+
+	public synchronized long getAverageDrawNanos() {
+		return drawCount == 0 ? 0 : drawTotalNanos / drawCount;
+	}
+
+	public synchronized long getMaxDrawNanos() {
+		return drawMaxNanos;
+	}
+
+	public synchronized long getAverageEnterAnimationNanos() {
+		return enterAnimationCount == 0 ? 0 : enterAnimationTotalNanos / enterAnimationCount;
+	}
+
+	public synchronized long getAverageExitAnimationNanos() {
+		return exitAnimationCount == 0 ? 0 : exitAnimationTotalNanos / exitAnimationCount;
+	}
+
+	public synchronized void reset() {
+		tooltipCount = 0;
+		drawnTooltipCount = 0;
+		firstDrawLatencyTotalNanos = 0;
+		firstDrawLatencyMaxNanos = 0;
+		measureCount = 0;
+		layoutCount = 0;
+		cancelledPreDrawCount = 0;
+		bubbleRebuildCount = 0;
+		drawCount = 0;
+		drawTotalNanos = 0;
+		drawMaxNanos = 0;
+		enterAnimationCount = 0;
+		enterAnimationTotalNanos = 0;
+		exitAnimationCount = 0;
+		exitAnimationTotalNanos = 0;
+	}
+}
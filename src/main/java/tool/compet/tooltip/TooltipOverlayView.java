@@ -0,0 +1,146 @@
+package tool.compet.tooltip;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+
+/**
+ * Single view which draws many tooltips (as records) in one onDraw, instead of one view hierarchy
+ * per tooltip. Touches are consumed only when they hit a record which should be hidden on click.
+ */
+@SuppressLint("ViewConstructor")
+final class TooltipOverlayView extends View {
+	private final ArrayList<TooltipRecord> records = new ArrayList<>();
+	private TooltipRecord touchedRecord;
+
+	private TooltipOverlayView(Context context) {
+		super(context);
+	}
+
+	static TooltipOverlayView of(ViewGroup root) {
+		for (int index = root.getChildCount() - 1; index >= 0; --index) {
+			final View child = root.getChildAt(index);
+			if (child instanceof TooltipOverlayView) {
+				return (TooltipOverlayView) child;
+			}
+		}
+		final TooltipOverlayView overlay = new TooltipOverlayView(root.getContext());
+		root.addView(overlay, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+		return overlay;
+	}
+
+	void addRecord(TooltipRecord record) {
+		record.overlay = this;
+		records.add(record);
+		if (getParent() instanceof TooltipHostLayout) {
+			((TooltipHostLayout) getParent()).occupy(record);
+		}
+		invalidate();
+
+		if (record.autoHide) {
+			postDelayed(record.autoRemoveRunnable, record.duration);
+		}
+		if (record.listenerDisplay != null) {
+			record.listenerDisplay.onDisplay(this);
+		}
+	}
+
+	void removeRecord(TooltipRecord record) {
+		if (!records.remove(record)) {
+			return;
+		}
+		removeCallbacks(record.autoRemoveRunnable);
+		record.overlay = null;
+		if (getParent() instanceof TooltipHostLayout) {
+			((TooltipHostLayout) getParent()).release(record);
+		}
+		if (touchedRecord == record) {
+			touchedRecord = null;
+		}
+		invalidate();
+
+		if (record.listenerHide != null) {
+			record.listenerHide.onHide(this);
+		}
+		final DkTooltip owner = record.owner;
+		record.owner = null;
+		if (owner != null) {
+			owner.onRemoved();
+		}
+		// No need to keep this view in hierarchy when nothing to draw
+		if (records.isEmpty() && getParent() != null) {
+			((ViewGroup) getParent()).removeView(this);
+		}
+	}
+
+	int getRecordCount() {
+		return records.size();
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+
+		for (int index = 0, N = records.size(); index < N; ++index) {
+			final TooltipRecord record = records.get(index);
+			final int saveCount = canvas.save();
+			canvas.translate(record.translationX, record.translationY);
+
+			if (record.shadowBitmap != null) {
+				canvas.drawBitmap(record.shadowBitmap, 0, 0, null);
+			}
+			if (record.bubblePath != null) {
+				canvas.drawPath(record.bubblePath, record.bubblePaint);
+				if (record.borderPaint != null) {
+					canvas.drawPath(record.bubblePath, record.borderPaint);
+				}
+			}
+			if (record.textLayout != null) {
+				canvas.translate(record.textLeft, record.textTop);
+				record.textLayout.draw(canvas);
+			}
+
+			canvas.restoreToCount(saveCount);
+		}
+	}
+
+	@SuppressLint("ClickableViewAccessibility")
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN: {
+				touchedRecord = findClickToHideRecord(event.getX(), event.getY());
+				return touchedRecord != null;
+			}
+			case MotionEvent.ACTION_UP: {
+				final TooltipRecord record = touchedRecord;
+				touchedRecord = null;
+				if (record != null && record.contains(event.getX(), event.getY())) {
+					record.remove();
+				}
+				return record != null;
+			}
+			case MotionEvent.ACTION_CANCEL: {
+				touchedRecord = null;
+				break;
+			}
+		}
+		return touchedRecord != null;
+	}
+
+	private TooltipRecord findClickToHideRecord(float x, float y) {
+		// Topmost record first
+		for (int index = records.size() - 1; index >= 0; --index) {
+			final TooltipRecord record = records.get(index);
+			if (record.clickToHide && record.contains(x, y)) {
+				return record;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,136 @@
+package tool.compet.tooltip;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * Bounded pool of tooltip views per Activity. Views of tooltips which opted in via {@link DkTooltip#pooled(boolean)},
+ * or which were never shown, are given back to their pool when removed. All methods must be called on main thread.
+ */
+public final class TooltipPool {
+	private static final int DEFAULT_MAX_SIZE = 4;
+	private static final HashMap<Activity, TooltipPool> pools = new HashMap<>();
+	private static boolean lifecycleCallbacksRegistered;
+
+	private final Activity activity;
+	private final ArrayDeque<TooltipView> views = new ArrayDeque<>();
+	private int maxSize = DEFAULT_MAX_SIZE;
+	private int obtainCount;
+	private int reuseCount;
+
+	private TooltipPool(Activity activity) {
+		this.activity = activity;
+	}
+
+	static TooltipPool of(Activity activity) {
+		TooltipPool pool = pools.get(activity);
+		if (pool == null) {
+			registerLifecycleCallbacks(activity.getApplication());
+			pool = new TooltipPool(activity);
+			pools.put(activity, pool);
+		}
+		return pool;
+	}
+
+	private static void registerLifecycleCallbacks(Application application) {
+		if (lifecycleCallbacksRegistered) {
+			return;
+		}
+		lifecycleCallbacksRegistered = true;
+
+		// Pooled views hold their Activity, so drop the pool when Activity is destroyed
+		application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+			@Override
+			public void onActivityDestroyed(Activity activity) {
+				final TooltipPool pool = pools.remove(activity);
+				if (pool != null) {
+					pool.views.clear();
+				}
+			}
+
+			@Override
+			public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+			}
+
+			@Override
+			public void onActivityStarted(Activity activity) {
+			}
+
+			@Override
+			public void onActivityResumed(Activity activity) {
+			}
+
+			@Override
+			public void onActivityPaused(Activity activity) {
+			}
+
+			@Override
+			public void onActivityStopped(Activity activity) {
+			}
+
+			@Override
+			public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+			}
+		});
+	}
+
+	TooltipView obtain() {
+		++obtainCount;
+
+		TooltipView view = views.poll();
+		if (view != null) {
+			++reuseCount;
+		}
+		else {
+			view = new TooltipView(activity);
+		}
+		view.pool = this;
+
+		return view;
+	}
+
+	void release(TooltipView view) {
+		view.pool = null;
+		if (!view.escaped && views.size() < maxSize && view.getParent() == null && !views.contains(view)) {
+			view.reset();
+			views.push(view);
+		}
+	}
+
+	/**
+	 * @return Number of idle views in this pool.
+	 */
+	public int size() {
+		return views.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		while (views.size() > maxSize) {
+			views.poll();
+		}
+	}
+
+	public int getObtainCount() {
+		return obtainCount;
+	}
+
+	public int getReuseCount() {
+		return reuseCount;
+	}
+
+	/**
+	 * @return Ratio (0..1) of obtained views which were reused instead of constructed.
+	 */
+	public float getReuseRate() {
+		return obtainCount == 0 ? 0 : (float) reuseCount / obtainCount;
+	}
+}
@@ -0,0 +1,105 @@
+package tool.compet.tooltip;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.DisplayMetrics;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Builds and pre-measures tooltip views into pool of an Activity in main thread idle time.
+ * Each idle pass does one small step, so a frame is never delayed by more than one view construction.
+ */
+final class TooltipPrewarmer implements MessageQueue.IdleHandler {
+	private static final String SAMPLE_TEXT = "Tooltip";
+	private static final Runnable NEXT_IDLE_PASS = () -> {
+	};
+
+	private final WeakReference<Activity> activityRef;
+	private final int count;
+	private final TooltipStyle style;
+	private final Rect anchorRect = new Rect();
+	private final Rect bounds = new Rect();
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private TooltipPrewarmer(Activity activity, int count, TooltipStyle style) {
+		this.activityRef = new WeakReference<>(activity);
+		this.count = count;
+		this.style = style;
+	}
+
+	static void start(Activity activity, int count, TooltipStyle style) {
+		if (count <= 0) {
+			return;
+		}
+		final TooltipPrewarmer prewarmer = new TooltipPrewarmer(activity, count, style);
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			Looper.myQueue().addIdleHandler(prewarmer);
+		}
+		else {
+			prewarmer.mainHandler.post(() -> Looper.myQueue().addIdleHandler(prewarmer));
+		}
+	}
+
+	/**
+	 * @return true to be called again on next idle pass, which is triggered by a posted empty message.
+	 */
+	@Override
+	public boolean queueIdle() {
+		final Activity activity = activityRef.get();
+		if (activity == null || activity.isFinishing() || activity.isDestroyed()) {
+			return false;
+		}
+
+		final boolean traced = TooltipTrace.begin("TooltipPrewarmer.step");
+		try {
+			final TooltipPool pool = TooltipPool.of(activity);
+			if (pool.size() >= count) {
+				return false;
+			}
+			if (pool.getMaxSize() < count) {
+				pool.setMaxSize(count);
+			}
+			pool.release(buildView(activity));
+
+			final boolean more = pool.size() < count;
+			if (more) {
+				// Idle handler is called once per idle period, so end this period with an empty message
+				mainHandler.post(NEXT_IDLE_PASS);
+			}
+			return more;
+		}
+		finally {
+			TooltipTrace.end(traced);
+		}
+	}
+
+	/**
+	 * Construct a view and run it through text parse, measure and bubble build once, this loads classes
+	 * and fills shared caches (html, bubble path) which first shown tooltip would do otherwise.
+	 * Style only shapes the sample bubble, pool resets the view so style is not kept.
+	 */
+	private TooltipView buildView(Activity activity) {
+		final TooltipView view = new TooltipView(activity);
+		if (style != null) {
+			view.setStyle(style);
+		}
+		view.setText(SAMPLE_TEXT);
+
+		final DisplayMetrics displayMetrics = activity.getResources().getDisplayMetrics();
+		final int width = displayMetrics.widthPixels;
+		final int height = displayMetrics.heightPixels;
+		anchorRect.set(width / 2, height / 2, width / 2 + 1, height / 2 + 1);
+		bounds.set(0, 0, width, height);
+
+		view.premeasure(anchorRect, width, height, bounds, null);
+		view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+		// Detached view is never set up or drawn, so build its bubble here
+		view.buildBubble();
+
+		return view;
+	}
+}
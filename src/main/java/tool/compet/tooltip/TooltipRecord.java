@@ -0,0 +1,51 @@
+package tool.compet.tooltip;
+
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.text.Layout;
+
+import tool.compet.tooltip.geometry.OccupancyGrid;
+
+/**
+ * Lightweight snapshot of a tooltip, drawn by {@link TooltipOverlayView} together with
+ * other records instead of by its own view hierarchy.
+ */
+final class TooltipRecord {
+	float translationX;
+	float translationY;
+	int width;
+	int height;
+	final Rect anchor = new Rect();
+	// Handles of bubble and anchor in occupancy of host
+	int bubbleHandle = OccupancyGrid.NO_HANDLE;
+	int anchorHandle = OccupancyGrid.NO_HANDLE;
+	Path bubblePath;
+	Paint bubblePaint;
+	Paint borderPaint;
+	Bitmap shadowBitmap;
+	Layout textLayout;
+	float textLeft;
+	float textTop;
+	boolean clickToHide;
+	long duration;
+	boolean autoHide;
+	DkTooltip.ListenerDisplay listenerDisplay;
+	DkTooltip.ListenerHide listenerHide;
+	TooltipOverlayView overlay;
+	// Notified when this record is removed
+	DkTooltip owner;
+
+	final Runnable autoRemoveRunnable = this::remove;
+
+	boolean contains(float x, float y) {
+		return x >= translationX && x < translationX + width && y >= translationY && y < translationY + height;
+	}
+
+	void remove() {
+		if (overlay != null) {
+			overlay.removeRecord(this);
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package tool.compet.tooltip;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * Immutable look of tooltip, build it once and apply it to any number of tooltips via
+ * {@link DkTooltip#style(TooltipStyle)}. Paints are created at build time and shared read-only
+ * by all tooltips of the style, a tooltip copies a paint only when it changes the paint later.
+ */
+public final class TooltipStyle {
+	final int color;
+	final int shadowColor;
+	final boolean withShadow;
+	final int corner;
+	final int arrowWidth;
+	final int arrowHeight;
+	final int paddingLeft;
+	final int paddingTop;
+	final int paddingRight;
+	final int paddingBottom;
+	final int textColor;
+	final Typeface typeface;
+	final int textSizeUnit;
+	final float textSize;
+	final DkTooltip.TooltipAnimation animation;
+
+	// Shared paints, must not be mutated
+	final Paint bubblePaint;
+	final Paint shadowBubblePaint;
+	final Paint borderPaint;
+
+	private TooltipStyle(Builder builder) {
+		this.color = builder.color;
+		this.shadowColor = builder.shadowColor;
+		this.withShadow = builder.withShadow;
+		this.corner = builder.corner;
+		this.arrowWidth = builder.arrowWidth;
+		this.arrowHeight = builder.arrowHeight;
+		this.paddingLeft = builder.paddingLeft;
+		this.paddingTop = builder.paddingTop;
+		this.paddingRight = builder.paddingRight;
+		this.paddingBottom = builder.paddingBottom;
+		this.textColor = builder.textColor;
+		this.typeface = builder.typeface;
+		this.textSizeUnit = builder.textSizeUnit;
+		this.textSize = builder.textSize;
+		this.animation = builder.animation;
+
+		this.bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		bubblePaint.setColor(color);
+		bubblePaint.setStyle(Paint.Style.FILL);
+
+		// Used when shadow is drawn by software layer
+		this.shadowBubblePaint = new Paint(bubblePaint);
+		shadowBubblePaint.setShadowLayer(TooltipView.DEFAULT_SHADOW_WIDTH, 0, 0, shadowColor);
+
+		if (builder.borderWidth > 0) {
+			this.borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			borderPaint.setColor(builder.borderColor);
+			borderPaint.setStyle(Paint.Style.STROKE);
+			borderPaint.setStrokeWidth(builder.borderWidth);
+		}
+		else {
+			this.borderPaint = null;
+		}
+	}
+
+	public int getColor() {
+		return color;
+	}
+
+	public int getShadowColor() {
+		return shadowColor;
+	}
+
+	public boolean isWithShadow() {
+		return withShadow;
+	}
+
+	public int getCorner() {
+		return corner;
+	}
+
+	public int getArrowWidth() {
+		return arrowWidth;
+	}
+
+	public int getArrowHeight() {
+		return arrowHeight;
+	}
+
+	public int getTextColor() {
+		return textColor;
+	}
+
+	public Typeface getTypeface() {
+		return typeface;
+	}
+
+	public DkTooltip.TooltipAnimation getAnimation() {
+		return animation;
+	}
+
+	public Builder newBuilder() {
+		return new Builder(this);
+	}
+
+	public static class Builder {
+		private int color = TooltipView.DEFAULT_COLOR;
+		private int shadowColor = TooltipView.DEFAULT_SHADOW_COLOR;
+		private boolean withShadow = true;
+		private int corner = TooltipView.DEFAULT_CORNER;
+		private int arrowWidth = TooltipView.DEFAULT_ARROW_SIZE;
+		private int arrowHeight = TooltipView.DEFAULT_ARROW_SIZE;
+		private int paddingLeft = TooltipView.DEFAULT_PADDING;
+		private int paddingTop = TooltipView.DEFAULT_PADDING_TOP;
+		private int paddingRight = TooltipView.DEFAULT_PADDING;
+		private int paddingBottom = TooltipView.DEFAULT_PADDING;
+		private int borderColor;
+		private float borderWidth;
+		private int textColor = Color.WHITE;
+		private Typeface typeface;
+		private int textSizeUnit = TypedValue.COMPLEX_UNIT_PX;
+		private float textSize = -1; // keep default text size
+		private DkTooltip.TooltipAnimation animation;
+
+		public Builder() {
+		}
+
+		private Builder(TooltipStyle style) {
+			this.color = style.color;
+			this.shadowColor = style.shadowColor;
+			this.withShadow = style.withShadow;
+			this.corner = style.corner;
+			this.arrowWidth = style.arrowWidth;
+			this.arrowHeight = style.arrowHeight;
+			this.paddingLeft = style.paddingLeft;
+			this.paddingTop = style.paddingTop;
+			this.paddingRight = style.paddingRight;
+			this.paddingBottom = style.paddingBottom;
+			if (style.borderPaint != null) {
+				this.borderColor = style.borderPaint.getColor();
+				this.borderWidth = style.borderPaint.getStrokeWidth();
+			}
+			this.textColor = style.textColor;
+			this.typeface = style.typeface;
+			this.textSizeUnit = style.textSizeUnit;
+			this.textSize = style.textSize;
+			this.animation = style.animation;
+		}
+
+		public Builder color(@ColorInt int color) {
+			this.color = color;
+			return this;
+		}
+
+		public Builder shadowColor(@ColorInt int shadowColor) {
+			this.shadowColor = shadowColor;
+			return this;
+		}
+
+		public Builder withShadow(boolean withShadow) {
+			this.withShadow = withShadow;
+			return this;
+		}
+
+		public Builder corner(int corner) {
+			this.corner = corner;
+			return this;
+		}
+
+		public Builder arrowWidth(int arrowWidth) {
+			this.arrowWidth = arrowWidth;
+			return this;
+		}
+
+		public Builder arrowHeight(int arrowHeight) {
+			this.arrowHeight = arrowHeight;
+			return this;
+		}
+
+		public Builder padding(int left, int top, int right, int bottom) {
+			this.paddingLeft = left;
+			this.paddingTop = top;
+			this.paddingRight = right;
+			this.paddingBottom = bottom;
+			return this;
+		}
+
+		/**
+		 * @param width Stroke width, 0 means no border.
+		 */
+		public Builder border(@ColorInt int color, float width) {
+			this.borderColor = color;
+			this.borderWidth = width;
+			return this;
+		}
+
+		public Builder textColor(@ColorInt int textColor) {
+			this.textColor = textColor;
+			return this;
+		}
+
+		public Builder textTypeFace(Typeface typeface) {
+			this.typeface = typeface;
+			return this;
+		}
+
+		public Builder textSize(int unit, float textSize) {
+			this.textSizeUnit = unit;
+			this.textSize = textSize;
+			return this;
+		}
+
+		/**
+		 * @param animation Shared by all tooltips of the style, so it must be stateless.
+		 */
+		public Builder animation(DkTooltip.TooltipAnimation animation) {
+			this.animation = animation;
+			return this;
+		}
+
+		public TooltipStyle build() {
+			return new TooltipStyle(this);
+		}
+	}
+}
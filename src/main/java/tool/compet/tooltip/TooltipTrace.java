@@ -0,0 +1,48 @@
+package tool.compet.tooltip;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named system trace sections (visible in Perfetto/Systrace) around tooltip work, off by default.
+ * Usage: {@code final boolean traced = TooltipTrace.begin(name); try {...} finally { TooltipTrace.end(traced); }},
+ * so a section is always closed even if tracing is switched meanwhile.
+ */
+final class TooltipTrace {
+	static volatile boolean enabled;
+	static volatile boolean debugOverlay;
+
+	private TooltipTrace() {
+	}
+
+	static boolean begin(String sectionName) {
+		if (enabled) {
+			Trace.beginSection(sectionName);
+			return true;
+		}
+		return false;
+	}
+
+	static void end(boolean traced) {
+		if (traced) {
+			Trace.endSection();
+		}
+	}
+
+	/**
+	 * Section which can span multiple frames, for eg,. an animation. Only available since Android Q.
+	 */
+	static boolean beginAsync(String sectionName, int cookie) {
+		if (enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.beginAsyncSection(sectionName, cookie);
+			return true;
+		}
+		return false;
+	}
+
+	static void endAsync(boolean traced, String sectionName, int cookie) {
+		if (traced && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.endAsyncSection(sectionName, cookie);
+		}
+	}
+}
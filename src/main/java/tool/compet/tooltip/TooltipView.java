@@ -3,77 +3,354 @@ package tool.compet.tooltip;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
-import android.text.Html;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
 import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 
-import java.util.Arrays;
+import java.util.Locale;
+
+import tool.compet.tooltip.geometry.IntRect;
+import tool.compet.tooltip.geometry.OccupancyGrid;
+import tool.compet.tooltip.geometry.Placement;
+import tool.compet.tooltip.geometry.PlacementSolver;
 
 public class TooltipView extends FrameLayout {
-	private static final int MARGIN_SCREEN_BORDER_TOOLTIP = 30;
+	static final int DEFAULT_ARROW_SIZE = 15;
+	static final int DEFAULT_COLOR = Color.parseColor("#1F7C82");
+	static final int DEFAULT_SHADOW_COLOR = Color.parseColor("#aaaaaa");
+	static final int DEFAULT_SHADOW_WIDTH = 8;
+	private static final long DEFAULT_DURATION = 4000;
+	static final int DEFAULT_CORNER = 30;
+	static final int DEFAULT_PADDING_TOP = 20;
+	static final int DEFAULT_PADDING = 30;
 	protected View childView;
+	private final TextView textView;
+	private final float defaultTextSize;
+	private final Typeface defaultTypeface;
+	private final int defaultTextGravity;
 	int shadowPadding = 4;
-	int shadowWidth = 8;
-	private int arrowHeight = 15;
-	private int arrowWidth = 15;
+	int shadowWidth = DEFAULT_SHADOW_WIDTH;
+	private int arrowHeight = DEFAULT_ARROW_SIZE;
+	private int arrowWidth = DEFAULT_ARROW_SIZE;
 	private int arrowSourceMargin = 0;
 	private int arrowTargetMargin = 0;
-	private int color = Color.parseColor("#1F7C82");
+	private int color = DEFAULT_COLOR;
 	private Path bubblePath;
+	private final BubbleKey bubbleKey = new BubbleKey();
+	private final BubbleKey scratchBubbleKey = new BubbleKey();
+	private boolean hasBubble;
+	private final RectF bubbleBodyRect = new RectF();
+	private final IntRect solverRect = new IntRect();
 	private Paint bubblePaint;
+	private final Paint ownBubblePaint;
+	// Style whose shared paint is used as bubble paint, copied to own paint before any change
+	private TooltipStyle sharedPaintStyle;
 	private Paint borderPaint;
+	private final Paint ownBorderPaint;
 	private DkTooltip.Position position = DkTooltip.Position.BOTTOM;
+	private boolean autoPosition;
+	private boolean translationFixed;
+	// Attached at exact size which was measured off-window
+	private boolean premeasured;
+	private final IntRect solverBounds = new IntRect();
+	private final Placement placement = new Placement();
 	private DkTooltip.Align align = DkTooltip.Align.CENTER;
 	private boolean clickToHide;
 	private boolean autoHide = true;
-	private long duration = 4000; // in millis
+	private long duration = DEFAULT_DURATION; // in millis
 	private DkTooltip.ListenerDisplay listenerDisplay;
 	private DkTooltip.ListenerHide listenerHide;
 	private DkTooltip.TooltipAnimation tooltipAnimation = new FadeTooltipAnimation();
-	private int corner = 30;
-	int paddingTop = 20;
-	int paddingBottom = 30;
-	int paddingRight = 30;
-	int paddingLeft = 30;
+	private int corner = DEFAULT_CORNER;
+	int paddingTop = DEFAULT_PADDING_TOP;
+	int paddingBottom = DEFAULT_PADDING;
+	int paddingRight = DEFAULT_PADDING;
+	int paddingLeft = DEFAULT_PADDING;
 	private int marginTop = 0;
 	private int marginBottom = 0;
 	private int marginRight = 0;
 	private int marginLeft = 0;
-	private Rect viewRect;
+	private final Rect viewRect = new Rect();
+	private boolean hasViewRect;
+	private boolean setupDone;
+	private final Rect setupRect = new Rect();
 	private int distanceWithView = 0;
-	private int shadowColor = Color.parseColor("#aaaaaa");
+	private int shadowColor = DEFAULT_SHADOW_COLOR;
+	private boolean withShadow;
+	private boolean hardwareRendering;
+	private boolean cachedShadow;
+	private Bitmap shadowBitmap;
+	TooltipPool pool;
+	// Handles of bubble and anchor in occupancy of host
+	int bubbleHandle = OccupancyGrid.NO_HANDLE;
+	int anchorHandle = OccupancyGrid.NO_HANDLE;
+	// Tooltip which currently uses this view, cleared on removal since a pooled view is then reused by others
+	DkTooltip owner;
+	// Reference was handed out by DkTooltip.show() of a not pooled tooltip, so never pool it
+	boolean escaped;
+	private DkTooltip.ListenerMetrics metricsListener;
+	private TooltipMetrics metrics;
+	private long animationStartNanos;
+	private boolean animationTraced;
+	private Paint debugPaint;
+	private boolean liveContent;
+	private int updateDepth;
+	private boolean pendingLayout;
+	private boolean pendingGeometry;
+	private boolean pendingInvalidate;
+	// Position and bubble wait for the relayout requested by commit, which gives the new size
+	private boolean pendingReposition;
+
+	private final Runnable autoRemoveRunnable = this::remove;
+
+	private final OnClickListener clickToHideListener = v -> {
+		if (clickToHide) {
+			remove();
+		}
+	};
+
+	private final ViewTreeObserver.OnPreDrawListener setupOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			onSetup(setupRect);
+			getViewTreeObserver().removeOnPreDrawListener(this);
+			onPreDrawCancelled();
+			return false;
+		}
+	};
+
+	// Does not cancel the frame since size and translation were already computed before attach
+	private final ViewTreeObserver.OnPreDrawListener premeasuredOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		@Override
+		public boolean onPreDraw() {
+			getViewTreeObserver().removeOnPreDrawListener(this);
+			onSetup(setupRect);
+			return true;
+		}
+	};
+
+	private final Animator.AnimatorListener enterAnimatorListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			super.onAnimationEnd(animation);
+			lastEnterFrameCount = endAnimationFrame();
+			if (metrics != null) {
+				metrics.enterAnimationNanos = System.nanoTime() - animationStartNanos;
+				metrics.enterFrameCount = lastEnterFrameCount;
+			}
+			if (listenerDisplay != null) {
+				listenerDisplay.onDisplay(TooltipView.this);
+			}
+		}
+	};
+
+	private Animator.AnimatorListener pendingExitListener;
+
+	// Layer promotion and frame counting while enter/exit animation is running
+	private boolean animating;
+	private boolean layerPromoted;
+	private int animationFrameCount;
+	private int lastEnterFrameCount;
+	private int lastExitFrameCount;
+
+	private final Choreographer.FrameCallback animationFrameCallback = new Choreographer.FrameCallback() {
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (animating) {
+				++animationFrameCount;
+				Choreographer.getInstance().postFrameCallback(this);
+			}
+		}
+	};
+
+	private final Animator.AnimatorListener exitAnimatorListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			super.onAnimationEnd(animation);
+			lastExitFrameCount = endAnimationFrame();
+			if (metrics != null) {
+				metrics.exitAnimationNanos = System.nanoTime() - animationStartNanos;
+				metrics.exitFrameCount = lastExitFrameCount;
+			}
+			final Animator.AnimatorListener listener = pendingExitListener;
+			pendingExitListener = null;
+			if (listener != null) {
+				listener.onAnimationEnd(animation);
+			}
+			if (listenerHide != null) {
+				listenerHide.onHide(TooltipView.this);
+			}
+		}
+	};
+
+	private final Animator.AnimatorListener removeOnExitListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			super.onAnimationEnd(animation);
+			removeNow();
+		}
+	};
+
+	// Follows bubblePath when it can be expressed as outline, otherwise falls back to the body without arrow
+	private final ViewOutlineProvider bubbleOutlineProvider = new ViewOutlineProvider() {
+		@Override
+		public void getOutline(View view, Outline outline) {
+			if (bubblePath == null || bubblePath.isEmpty()) {
+				outline.setEmpty();
+			}
+			else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+				outline.setPath(bubblePath);
+			}
+			else {
+				setLegacyOutline(outline);
+			}
+		}
+
+		// Before API 30 only convex paths can be outlines
+		@SuppressWarnings("deprecation")
+		private void setLegacyOutline(Outline outline) {
+			if (bubblePath.isConvex()) {
+				outline.setConvexPath(bubblePath);
+			}
+			else {
+				outline.setRoundRect(
+					Math.round(bubbleBodyRect.left),
+					Math.round(bubbleBodyRect.top),
+					Math.round(bubbleBodyRect.right),
+					Math.round(bubbleBodyRect.bottom),
+					corner / 2f
+				);
+			}
+		}
+	};
 
 	public TooltipView(Context context) {
 		super(context);
 		setWillNotDraw(false);
 
-		this.childView = new TextView(context);
-		((TextView) childView).setTextColor(Color.WHITE);
+		this.textView = new TextView(context);
+		this.childView = textView;
+		textView.setTextColor(Color.WHITE);
 		addView(childView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
 		childView.setPadding(0, 0, 0, 0);
+		this.defaultTextSize = textView.getTextSize();
+		this.defaultTypeface = textView.getTypeface();
+		this.defaultTextGravity = textView.getGravity();
 
-		bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		bubblePaint = ownBubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
 		bubblePaint.setColor(color);
 		bubblePaint.setStyle(Paint.Style.FILL);
 
 		borderPaint = null;
+		ownBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		ownBorderPaint.setStyle(Paint.Style.STROKE);
 
-		setLayerType(LAYER_TYPE_SOFTWARE, bubblePaint);
+		updateLayerType();
 
 		setWithShadow(true);
 
 	}
 
+	/**
+	 * Restore every property which can be set via DkTooltip to its default, and cancel
+	 * pending timers and animations. Called when this view is given back to a pool.
+	 */
+	void reset() {
+		removeCallbacks(autoRemoveRunnable);
+		getViewTreeObserver().removeOnPreDrawListener(setupOnPreDrawListener);
+		getViewTreeObserver().removeOnPreDrawListener(premeasuredOnPreDrawListener);
+		cancelAnimations();
+		lastEnterFrameCount = lastExitFrameCount = 0;
+		setAlpha(1);
+		setTranslationX(0);
+		setTranslationY(0);
+		setVisibility(VISIBLE);
+		setOnClickListener(null);
+		setClickable(false);
+
+		if (childView != textView) {
+			setCustomView(textView);
+		}
+		textView.setText(null);
+		textView.setTextColor(Color.WHITE);
+		textView.setTypeface(defaultTypeface);
+		textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
+		textView.setGravity(defaultTextGravity);
+		textView.setPadding(0, 0, 0, 0);
+		if (liveContent) {
+			liveContent = false;
+			textView.setSingleLine(false);
+			textView.setEllipsize(null);
+			final ViewGroup.LayoutParams textParams = textView.getLayoutParams();
+			textParams.width = textParams.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+			textView.setLayoutParams(textParams);
+		}
+
+		paddingTop = DEFAULT_PADDING_TOP;
+		paddingBottom = DEFAULT_PADDING;
+		paddingRight = DEFAULT_PADDING;
+		paddingLeft = DEFAULT_PADDING;
+		setPadding(0, 0, 0, 0);
+		marginLeft = marginTop = marginRight = marginBottom = 0;
+		distanceWithView = 0;
+
+		arrowWidth = arrowHeight = DEFAULT_ARROW_SIZE;
+		arrowSourceMargin = arrowTargetMargin = 0;
+		corner = DEFAULT_CORNER;
+		position = DkTooltip.Position.BOTTOM;
+		autoPosition = false;
+		translationFixed = false;
+		premeasured = false;
+		align = DkTooltip.Align.CENTER;
+
+		color = DEFAULT_COLOR;
+		sharedPaintStyle = null;
+		bubblePaint = ownBubblePaint;
+		bubblePaint.setColor(color);
+		borderPaint = null;
+		shadowColor = DEFAULT_SHADOW_COLOR;
+		hardwareRendering = false;
+		cachedShadow = false;
+		shadowBitmap = null;
+		setWithShadow(true);
+		updateLayerType();
+
+		clickToHide = false;
+		autoHide = true;
+		duration = DEFAULT_DURATION;
+		listenerDisplay = null;
+		listenerHide = null;
+		metricsListener = null;
+		metrics = null;
+		tooltipAnimation = new FadeTooltipAnimation();
+
+		hasViewRect = false;
+		setupDone = false;
+		updateDepth = 0;
+		pendingLayout = pendingGeometry = pendingInvalidate = pendingReposition = false;
+		hasBubble = false;
+		bubblePath = null;
+	}
+
 	public void setCustomView(View customView) {
 		this.removeView(childView);
 		this.childView = customView;
@@ -82,13 +359,21 @@ public class TooltipView extends FrameLayout {
 
 	public void setColor(int color) {
 		this.color = color;
-		bubblePaint.setColor(color);
-		postInvalidate();
+		mutableBubblePaint().setColor(color);
+		onAppearanceChanged();
 	}
 
 	public void setShadowColor(int color) {
 		this.shadowColor = color;
-		postInvalidate();
+		if (sharedPaintStyle != null) {
+			mutableBubblePaint();
+			applyShadow();
+		}
+		else if (hardwareRendering) {
+			applyShadow();
+		}
+		shadowBitmap = null;
+		onAppearanceChanged();
 	}
 
 	public void setMargin(int left, int top, int right, int bottom) {
@@ -98,16 +383,159 @@ public class TooltipView extends FrameLayout {
 		this.marginBottom = top;
 
 		childView.setPadding(childView.getPaddingLeft() + left, childView.getPaddingTop() + top, childView.getPaddingRight() + right, childView.getPaddingBottom() + bottom);
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public void setPaint(Paint paint) {
+		sharedPaintStyle = null;
 		bubblePaint = paint;
-		setLayerType(LAYER_TYPE_SOFTWARE, paint);
-		postInvalidate();
+		updateLayerType();
+		onAppearanceChanged();
+	}
+
+	/**
+	 * Opt-in hardware rendering: the bubble is drawn without software layer and its shadow
+	 * is rendered by RenderThread via elevation and an outline which follows the bubble path.
+	 */
+	public void setHardwareRendering(boolean hardwareRendering) {
+		this.hardwareRendering = hardwareRendering;
+		applyShadow();
+		updateLayerType();
+		onAppearanceChanged();
+	}
+
+	public boolean isHardwareRendering() {
+		return hardwareRendering;
+	}
+
+	/**
+	 * Draw the shadow from a process-wide cache of pre-blurred bitmaps instead of
+	 * blurring it via shadow layer on every software redraw.
+	 */
+	public void setShadowCached(boolean cachedShadow) {
+		this.cachedShadow = cachedShadow;
+		this.shadowBitmap = null;
+		applyShadow();
+		updateLayerType();
+		onAppearanceChanged();
+	}
+
+	public boolean isShadowCached() {
+		return cachedShadow;
+	}
+
+	private void updateLayerType() {
+		if (hardwareRendering || cachedShadow) {
+			setLayerType(LAYER_TYPE_NONE, null);
+		}
+		else {
+			setLayerType(LAYER_TYPE_SOFTWARE, bubblePaint);
+		}
+	}
+
+	/**
+	 * Apply all attributes of given style at once. Paints of the style are shared, not copied,
+	 * until this tooltip changes one of them.
+	 */
+	public void setStyle(TooltipStyle style) {
+		this.color = style.color;
+		this.shadowColor = style.shadowColor;
+		this.withShadow = style.withShadow;
+		this.corner = style.corner;
+		this.arrowWidth = style.arrowWidth;
+		this.arrowHeight = style.arrowHeight;
+		this.paddingLeft = style.paddingLeft;
+		this.paddingTop = style.paddingTop;
+		this.paddingRight = style.paddingRight;
+		this.paddingBottom = style.paddingBottom;
+		if (style.animation != null) {
+			this.tooltipAnimation = style.animation;
+		}
+
+		this.sharedPaintStyle = style;
+		this.bubblePaint = style.bubblePaint;
+		this.borderPaint = style.borderPaint;
+		this.shadowWidth = DEFAULT_SHADOW_WIDTH;
+		this.shadowBitmap = null;
+
+		if (childView instanceof TextView) {
+			final TextView textView = (TextView) childView;
+			textView.setTextColor(style.textColor);
+			if (style.typeface != null) {
+				textView.setTypeface(style.typeface);
+			}
+			if (style.textSize > 0) {
+				textView.setTextSize(style.textSizeUnit, style.textSize);
+			}
+		}
+
+		applyPosition(position);
+		applyShadow();
+		updateLayerType();
+		onGeometryChanged();
+	}
+
+	/**
+	 * @return Bubble paint which can be changed, a shared paint of style is copied first.
+	 */
+	private Paint mutableBubblePaint() {
+		if (sharedPaintStyle != null) {
+			sharedPaintStyle = null;
+			ownBubblePaint.set(bubblePaint);
+			bubblePaint = ownBubblePaint;
+			updateLayerType();
+		}
+		return bubblePaint;
+	}
+
+	private void applyShadow() {
+		final boolean shadowLayer = withShadow && !hardwareRendering && !cachedShadow;
+		if (sharedPaintStyle != null) {
+			final Paint paint = shadowLayer ? sharedPaintStyle.shadowBubblePaint : sharedPaintStyle.bubblePaint;
+			if (bubblePaint != paint) {
+				bubblePaint = paint;
+				updateLayerType();
+			}
+		}
+		else if (shadowLayer) {
+			bubblePaint.setShadowLayer(shadowWidth, 0, 0, shadowColor);
+		}
+		else {
+			bubblePaint.setShadowLayer(0, 0, 0, Color.TRANSPARENT);
+		}
+
+		if (withShadow && hardwareRendering) {
+			setOutlineProvider(bubbleOutlineProvider);
+			setElevation(shadowWidth);
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+				setOutlineAmbientShadowColor(shadowColor);
+				setOutlineSpotShadowColor(shadowColor);
+			}
+		}
+		else {
+			setOutlineProvider(null);
+			setElevation(0);
+		}
 	}
 
+	/**
+	 * @param position With {@link DkTooltip.Position#AUTO}, current position is kept as preferred side
+	 * and final side is picked when premeasuring.
+	 */
 	public void setPosition(DkTooltip.Position position) {
+		if (position == DkTooltip.Position.AUTO) {
+			autoPosition = true;
+			return;
+		}
+		autoPosition = false;
+		applyPosition(position);
+	}
+
+	boolean isAutoPosition() {
+		return autoPosition;
+	}
+
+	private void applyPosition(DkTooltip.Position position) {
 		this.position = position;
 		switch (position) {
 			case TOP:
@@ -123,33 +551,110 @@ public class TooltipView extends FrameLayout {
 				setPadding(paddingLeft + arrowHeight, paddingTop, paddingRight, paddingBottom);
 				break;
 		}
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public void setAlign(DkTooltip.Align align) {
 		this.align = align;
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public void setText(String text) {
 		if (childView instanceof TextView) {
-			((TextView) this.childView).setText(Html.fromHtml(text));
+			((TextView) this.childView).setText(HtmlCache.fromHtml(text));
 		}
-		postInvalidate();
+		onAppearanceChanged();
+	}
+
+	void setText(CharSequence text) {
+		if (childView instanceof TextView) {
+			((TextView) this.childView).setText(text);
+		}
+		onAppearanceChanged();
 	}
 
 	public void setText(int text) {
 		if (childView instanceof TextView) {
 			((TextView) this.childView).setText(text);
 		}
-		postInvalidate();
+		onAppearanceChanged();
+	}
+
+	/**
+	 * Reserve a stable size for text which changes many times per second (timer, progress...),
+	 * large enough for given template (for eg,. "00:00", "100%"). After that {@link #setLiveText}
+	 * only redraws text in place, without laying out the window or rebuilding bubble path.
+	 * Text attributes (size, typeface, margin) must be set before this. Built-in text view only.
+	 */
+	public void setLiveContent(CharSequence template) {
+		reserveLiveSize((int) Math.ceil(Layout.getDesiredWidth(template, textView.getPaint())), template);
+	}
+
+	/**
+	 * Same as {@link #setLiveContent(CharSequence)} but with fixed text width in pixels.
+	 */
+	public void setLiveContentWidth(int width) {
+		reserveLiveSize(width, null);
+	}
+
+	/**
+	 * @param template Text which height is measured, current text is measured if null.
+	 */
+	private void reserveLiveSize(int textWidth, CharSequence template) {
+		if (childView != textView) {
+			return;
+		}
+		liveContent = true;
+		textView.setSingleLine(true);
+		textView.setEllipsize(TextUtils.TruncateAt.END);
+
+		// Line height misses font padding (descenders would be clipped), so take height of a real measure
+		final CharSequence text = textView.getText();
+		if (template != null) {
+			textView.setText(template);
+		}
+		final int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+		textView.measure(unspecified, unspecified);
+		final int height = textView.getMeasuredHeight();
+		if (template != null) {
+			textView.setText(text);
+		}
+
+		// With exact size, TextView only invalidates itself when its text changes
+		final ViewGroup.LayoutParams textParams = textView.getLayoutParams();
+		textParams.width = textWidth + textView.getCompoundPaddingLeft() + textView.getCompoundPaddingRight();
+		textParams.height = height;
+		textView.setLayoutParams(textParams);
+
+		// Redraw of text should not re-render blurred shadow of software layer
+		if (!hardwareRendering) {
+			setShadowCached(true);
+		}
+	}
+
+	public boolean isLiveContent() {
+		return liveContent;
+	}
+
+	/**
+	 * Update text of live content, it is shown as is (not parsed as html).
+	 */
+	public void setLiveText(CharSequence text) {
+		textView.setText(text);
+	}
+
+	/**
+	 * Allocation-free variant of {@link #setLiveText(CharSequence)}, given buffer can be reused for next update.
+	 */
+	public void setLiveText(char[] text, int start, int length) {
+		textView.setText(text, start, length);
 	}
 
 	public void setTextColor(int textColor) {
 		if (childView instanceof TextView) {
 			((TextView) this.childView).setTextColor(textColor);
 		}
-		postInvalidate();
+		onAppearanceChanged();
 	}
 
 	public int getArrowHeight() {
@@ -158,7 +663,7 @@ public class TooltipView extends FrameLayout {
 
 	public void setArrowHeight(int arrowHeight) {
 		this.arrowHeight = arrowHeight;
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public int getArrowWidth() {
@@ -167,7 +672,7 @@ public class TooltipView extends FrameLayout {
 
 	public void setArrowWidth(int arrowWidth) {
 		this.arrowWidth = arrowWidth;
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public int getArrowSourceMargin() {
@@ -176,7 +681,7 @@ public class TooltipView extends FrameLayout {
 
 	public void setArrowSourceMargin(int arrowSourceMargin) {
 		this.arrowSourceMargin = arrowSourceMargin;
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public int getArrowTargetMargin() {
@@ -185,28 +690,28 @@ public class TooltipView extends FrameLayout {
 
 	public void setArrowTargetMargin(int arrowTargetMargin) {
 		this.arrowTargetMargin = arrowTargetMargin;
-		postInvalidate();
+		onGeometryChanged();
 	}
 
 	public void setTextTypeFace(Typeface textTypeFace) {
 		if (childView instanceof TextView) {
 			((TextView) this.childView).setTypeface(textTypeFace);
 		}
-		postInvalidate();
+		onAppearanceChanged();
 	}
 
 	public void setTextSize(int unit, float size) {
 		if (childView instanceof TextView) {
 			((TextView) this.childView).setTextSize(unit, size);
 		}
-		postInvalidate();
+		onAppearanceChanged();
 	}
 
 	public void setTextGravity(int textGravity) {
 		if (childView instanceof TextView) {
 			((TextView) this.childView).setGravity(textGravity);
 		}
-		postInvalidate();
+		onAppearanceChanged();
 	}
 
 	public void setClickToHide(boolean clickToHide) {
@@ -215,25 +720,245 @@ public class TooltipView extends FrameLayout {
 
 	public void setCorner(int corner) {
 		this.corner = corner;
+		onGeometryChanged();
+	}
+
+	/**
+	 * Start a transaction, changes made until matching {@link #commit()} cause at most one relayout
+	 * (only when size is affected) and one invalidate. Transactions can be nested, must be used on main thread.
+	 */
+	public void beginUpdate() {
+		++updateDepth;
+	}
+
+	/**
+	 * End transaction started by {@link #beginUpdate()}. Bubble path is rebuilt only if its geometry changed,
+	 * and after the relayout (at new size) if size is affected too.
+	 */
+	public void commit() {
+		if (updateDepth == 0) {
+			throw new IllegalStateException("Call beginUpdate() before commit()");
+		}
+		if (--updateDepth > 0) {
+			return;
+		}
+
+		final boolean layout = pendingLayout;
+		final boolean geometry = pendingGeometry;
+		final boolean invalidate = pendingInvalidate;
+		pendingLayout = pendingGeometry = pendingInvalidate = false;
+
+		if ((geometry || layout) && setupDone) {
+			if (layout) {
+				// Exact size of premeasured tooltip would clip changed content
+				if (premeasured) {
+					premeasureAgain();
+				}
+				pendingReposition = true;
+			}
+			else {
+				repositionBubble();
+			}
+		}
+		if (layout) {
+			super.requestLayout();
+		}
+		if (layout || geometry || invalidate) {
+			invalidate();
+		}
+	}
+
+	private void repositionBubble() {
+		if (!translationFixed) {
+			setupPosition(setupRect);
+		}
+		occupyInHost();
+		drawBubble(getWidth(), getHeight());
+	}
+
+	/**
+	 * Measure attached premeasured tooltip again for its changed content, on the side it is shown
+	 * and against current anchor position, then keep that size as its layout params.
+	 */
+	private void premeasureAgain() {
+		final View parent = (View) getParent();
+		if (parent == null) {
+			return;
+		}
+		translationFixed = false;
+		setupRect.set(viewRect);
+
+		final int heightSpec = MeasureSpec.makeMeasureSpec(parent.getHeight(), MeasureSpec.AT_MOST);
+		measure(MeasureSpec.makeMeasureSpec(parent.getWidth(), MeasureSpec.AT_MOST), heightSpec);
+		measureToFit(parent.getWidth(), heightSpec);
+
+		final ViewGroup.LayoutParams layoutParams = getLayoutParams();
+		layoutParams.width = getMeasuredWidth();
+		layoutParams.height = getMeasuredHeight();
+	}
+
+	@Override
+	public void requestLayout() {
+		// Layout requests of this view and its children are collected while updating, and made once on commit
+		if (updateDepth > 0) {
+			pendingLayout = true;
+			return;
+		}
+		super.requestLayout();
+	}
+
+	private void onAppearanceChanged() {
+		if (updateDepth > 0) {
+			pendingInvalidate = true;
+		}
+		else {
+			postInvalidate();
+		}
+	}
+
+	private void onGeometryChanged() {
+		if (updateDepth > 0) {
+			pendingGeometry = true;
+		}
+		else {
+			postInvalidate();
+		}
 	}
 
 	@Override
 	protected void onSizeChanged(int width, int height, int oldw, int oldh) {
 		super.onSizeChanged(width, height, oldw, oldh);
 
-		bubblePath = drawBubble(new RectF(shadowPadding, shadowPadding, width - shadowPadding * 2, height - shadowPadding * 2), corner, corner, corner, corner);
+		// Before setup, bubble is built once by onSetup() at final translation,
+		// otherwise by onLayout() after translation is updated
+		if (setupDone && !pendingReposition) {
+			drawBubble(width, height);
+		}
+	}
+
+	/**
+	 * Report rendering cost of each show to given listener when this tooltip is removed.
+	 * Without listener, no metrics is collected.
+	 */
+	public void setMetricsListener(DkTooltip.ListenerMetrics listener) {
+		this.metricsListener = listener;
+		if (listener == null) {
+			metrics = null;
+		}
+		else if (metrics == null) {
+			metrics = new TooltipMetrics();
+		}
+	}
+
+	void markShowRequested() {
+		if (metrics != null) {
+			metrics.reset();
+			metrics.showNanos = System.nanoTime();
+		}
+	}
+
+	void onPreDrawCancelled() {
+		if (metrics != null) {
+			++metrics.cancelledPreDrawCount;
+		}
+	}
+
+	private void reportMetrics() {
+		if (metrics != null && metrics.showNanos > 0) {
+			metrics.showNanos = 0;
+			metricsListener.onMetrics(metrics);
+		}
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		if (metrics != null) {
+			++metrics.measureCount;
+		}
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+		super.onLayout(changed, left, top, right, bottom);
+		if (pendingReposition) {
+			pendingReposition = false;
+			repositionBubble();
+		}
+		if (metrics != null) {
+			++metrics.layoutCount;
+		}
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		if (metrics == null && !TooltipTrace.debugOverlay) {
+			super.draw(canvas);
+		}
+		else {
+			final long startNanos = System.nanoTime();
+			super.draw(canvas);
+			final long endNanos = System.nanoTime();
+			if (metrics != null) {
+				metrics.onDraw(startNanos, endNanos);
+			}
+			if (TooltipTrace.debugOverlay) {
+				drawDebugOverlay(canvas, endNanos - startNanos);
+			}
+		}
+	}
+
+	// Draw cost (of this frame, overlay excluded) and layer type, so expensive tooltips can be spotted on screen
+	private void drawDebugOverlay(Canvas canvas, long drawNanos) {
+		if (debugPaint == null) {
+			debugPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			debugPaint.setColor(Color.RED);
+			debugPaint.setTextSize(24);
+		}
+		final String layerType;
+		switch (getLayerType()) {
+			case LAYER_TYPE_SOFTWARE:
+				layerType = "SW";
+				break;
+			case LAYER_TYPE_HARDWARE:
+				layerType = "HW";
+				break;
+			default:
+				layerType = "NONE";
+		}
+		canvas.drawText(String.format(Locale.US, "%.2fms %s", drawNanos / 1e6, layerType), shadowPadding, -debugPaint.ascent(), debugPaint);
 	}
 
 	@Override
 	protected void onDraw(Canvas canvas) {
-		super.onDraw(canvas);
+		final boolean traced = TooltipTrace.begin("TooltipView.onDraw");
+		try {
+			super.onDraw(canvas);
 
-		if (bubblePath != null) {
-			canvas.drawPath(bubblePath, bubblePaint);
-			if (borderPaint != null) {
-				canvas.drawPath(bubblePath, borderPaint);
+			if (bubblePath != null) {
+				if (withShadow && cachedShadow && !hardwareRendering) {
+					drawCachedShadow(canvas);
+				}
+				canvas.drawPath(bubblePath, bubblePaint);
+				if (borderPaint != null) {
+					canvas.drawPath(bubblePath, borderPaint);
+				}
 			}
 		}
+		finally {
+			TooltipTrace.end(traced);
+		}
+	}
+
+	private void drawCachedShadow(Canvas canvas) {
+		if (shadowBitmap == null) {
+			if (!hasBubble || bubbleKey.width <= 0 || bubbleKey.height <= 0) {
+				return;
+			}
+			final ShadowBitmapCache.Key key = new ShadowBitmapCache.Key(bubbleKey, shadowWidth, shadowColor);
+			shadowBitmap = ShadowBitmapCache.obtain(key, bubblePath);
+		}
+		canvas.drawBitmap(shadowBitmap, 0, 0, null);
 	}
 
 	public void setListenerDisplay(DkTooltip.ListenerDisplay listener) {
@@ -249,55 +974,81 @@ public class TooltipView extends FrameLayout {
 	}
 
 	protected void startEnterAnimation() {
-		tooltipAnimation.animateEnter(this, new AnimatorListenerAdapter() {
-			@Override
-			public void onAnimationEnd(Animator animation) {
-				super.onAnimationEnd(animation);
-				if (listenerDisplay != null) {
-					listenerDisplay.onDisplay(TooltipView.this);
-				}
-			}
-		});
+		beginAnimationFrame();
+		tooltipAnimation.animateEnter(this, enterAnimatorListener);
 	}
 
 	protected void startExitAnimation(final Animator.AnimatorListener animatorListener) {
-		tooltipAnimation.animateExit(this, new AnimatorListenerAdapter() {
-			@Override
-			public void onAnimationEnd(Animator animation) {
-				super.onAnimationEnd(animation);
-				animatorListener.onAnimationEnd(animation);
-				if (listenerHide != null) {
-					listenerHide.onHide(TooltipView.this);
-				}
-			}
-		});
+		pendingExitListener = animatorListener;
+		beginAnimationFrame();
+		tooltipAnimation.animateExit(this, exitAnimatorListener);
+	}
+
+	private void beginAnimationFrame() {
+		endAnimationFrame();
+
+		// Software layer is kept before P since shadow layer of path is not supported by hardware there
+		final int layerType = getLayerType();
+		if (tooltipAnimation.promoteToHardwareLayer()
+			&& (layerType == LAYER_TYPE_NONE || (layerType == LAYER_TYPE_SOFTWARE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P))) {
+			layerPromoted = true;
+			setLayerType(LAYER_TYPE_HARDWARE, null);
+		}
+
+		animating = true;
+		animationFrameCount = 0;
+		animationTraced = TooltipTrace.beginAsync("TooltipView.animation", System.identityHashCode(this));
+		if (metrics != null) {
+			animationStartNanos = System.nanoTime();
+		}
+		Choreographer.getInstance().postFrameCallback(animationFrameCallback);
+	}
+
+	/**
+	 * @return Number of frames which were rendered while animating.
+	 */
+	private int endAnimationFrame() {
+		if (layerPromoted) {
+			layerPromoted = false;
+			updateLayerType();
+		}
+		if (!animating) {
+			return 0;
+		}
+		animating = false;
+		Choreographer.getInstance().removeFrameCallback(animationFrameCallback);
+		TooltipTrace.endAsync(animationTraced, "TooltipView.animation", System.identityHashCode(this));
+		animationTraced = false;
+		return animationFrameCount;
+	}
+
+	/**
+	 * @return Number of frames which last enter animation took.
+	 */
+	public int getLastEnterFrameCount() {
+		return lastEnterFrameCount;
+	}
+
+	/**
+	 * @return Number of frames which last exit animation took.
+	 */
+	public int getLastExitFrameCount() {
+		return lastExitFrameCount;
 	}
 
 	protected void handleAutoRemove() {
 		if (clickToHide) {
-			setOnClickListener(new OnClickListener() {
-				@Override
-				public void onClick(View v) {
-					if (clickToHide) {
-						remove();
-					}
-				}
-			});
+			setOnClickListener(clickToHideListener);
 		}
 
 		if (autoHide) {
-			postDelayed(() -> remove(), duration);
+			removeCallbacks(autoRemoveRunnable);
+			postDelayed(autoRemoveRunnable, duration);
 		}
 	}
 
 	public void remove() {
-		startExitAnimation(new AnimatorListenerAdapter() {
-			@Override
-			public void onAnimationEnd(Animator animation) {
-				super.onAnimationEnd(animation);
-				removeNow();
-			}
-		});
+		startExitAnimation(removeOnExitListener);
 	}
 
 	public void setDuration(long duration) {
@@ -309,205 +1060,350 @@ public class TooltipView extends FrameLayout {
 	}
 
 	public void setupPosition(Rect rect) {
+		setupPosition(rect, getWidth(), getHeight());
+	}
+
+	private void setupPosition(Rect rect, int width, int height) {
+		final IntRect anchor = toSolverRect(rect);
+		final PlacementSolver.Position solverPosition = toSolverPosition(position);
+		final PlacementSolver.Align solverAlign = toSolverAlign(align);
 
-		int x, y;
+		setTranslationX(PlacementSolver.placeX(solverPosition, solverAlign, anchor, width, distanceWithView));
+		setTranslationY(PlacementSolver.placeY(solverPosition, solverAlign, anchor, height, distanceWithView));
+	}
 
-		if (position == DkTooltip.Position.LEFT || position == DkTooltip.Position.RIGHT) {
-			if (position == DkTooltip.Position.LEFT) {
-				x = rect.left - getWidth() - distanceWithView;
+	private void drawBubble(int width, int height) {
+		final boolean traced = TooltipTrace.begin("TooltipView.drawBubble");
+		try {
+			if (!hasViewRect) {
+				return;
 			}
-			else {
-				x = rect.right + distanceWithView;
+
+			final BubbleKey key = scratchBubbleKey.set(width, height, shadowPadding, corner, arrowWidth, arrowHeight,
+				arrowSourceMargin, arrowTargetMargin, position, viewRect.centerX() - getX(),
+				marginLeft, marginTop, marginRight, marginBottom);
+
+			// Skip rebuild when geometry is unchanged
+			if (hasBubble && key.equals(bubbleKey)) {
+				return;
 			}
-			y = rect.top + getAlignOffset(getHeight(), rect.height());
-		}
-		else {
-			if (position == DkTooltip.Position.BOTTOM) {
-				y = rect.bottom + distanceWithView;
+
+			if (metrics != null) {
+				++metrics.bubbleRebuildCount;
 			}
-			else { // top
-				y = rect.top - getHeight() - distanceWithView;
+
+			final BubblePathCache.BubbleShape shape = BubblePathCache.obtain(key);
+			bubbleKey.set(key);
+			hasBubble = true;
+			bubblePath = shape.path;
+			bubbleBodyRect.set(shape.body);
+			shadowBitmap = null;
+
+			if (hardwareRendering) {
+				invalidateOutline();
 			}
-			x = rect.left + getAlignOffset(getWidth(), rect.width());
 		}
+		finally {
+			TooltipTrace.end(traced);
+		}
+	}
 
-		setTranslationX(x);
-		setTranslationY(y);
+	/**
+	 * Build bubble of premeasured view at its measured size, without showing it.
+	 */
+	void buildBubble() {
+		drawBubble(getMeasuredWidth(), getMeasuredHeight());
 	}
 
-	private int getAlignOffset(int myLength, int hisLength) {
-		switch (align) {
-			case END:
-				return hisLength - myLength;
-			case CENTER:
-				return (hisLength - myLength) / 2;
+	public boolean adjustSize(Rect rect, int screenWidth) {
+		final boolean traced = TooltipTrace.begin("TooltipView.adjustSize");
+		try {
+			boolean changed = false;
+			final ViewGroup.LayoutParams layoutParams = getLayoutParams();
+			final int width = getWidth();
+			final int fitWidth = fitWidth(rect, screenWidth, width);
+			if (fitWidth != width) {
+				layoutParams.width = fitWidth;
+				changed = true;
+			}
+			else if (position == DkTooltip.Position.TOP || position == DkTooltip.Position.BOTTOM) {
+				changed = shiftIntoScreen(rect, screenWidth, width);
+			}
+
+			setLayoutParams(layoutParams);
+			postInvalidate();
+			return changed;
+		}
+		finally {
+			TooltipTrace.end(traced);
 		}
-		return 0;
 	}
 
-	private Path drawBubble(RectF myRect, float topLeftDiameter, float topRightDiameter, float bottomRightDiameter, float bottomLeftDiameter) {
-		final Path path = new Path();
+	private int fitWidth(Rect rect, int screenWidth, int width) {
+		return PlacementSolver.fitWidth(toSolverPosition(position), toSolverRect(rect), screenWidth, width, distanceWithView);
+	}
 
-		if (viewRect == null)
-			return path;
+	private boolean shiftIntoScreen(Rect rect, int screenWidth, int width) {
+		final IntRect anchor = toSolverRect(rect);
+		final boolean changed = PlacementSolver.shiftIntoScreen(anchor, screenWidth, width);
+		if (changed) {
+			setAlign(DkTooltip.Align.CENTER);
+		}
+		rect.left = anchor.left;
+		rect.right = anchor.right;
 
-		topLeftDiameter = topLeftDiameter < 0 ? 0 : topLeftDiameter;
-		topRightDiameter = topRightDiameter < 0 ? 0 : topRightDiameter;
-		bottomLeftDiameter = bottomLeftDiameter < 0 ? 0 : bottomLeftDiameter;
-		bottomRightDiameter = bottomRightDiameter < 0 ? 0 : bottomRightDiameter;
+		return changed;
+	}
 
-		final float spacingLeft = this.position == DkTooltip.Position.RIGHT ? arrowHeight : marginLeft;
-		final float spacingTop = this.position == DkTooltip.Position.BOTTOM ? arrowHeight : marginTop;
-		final float spacingRight = this.position == DkTooltip.Position.LEFT ? arrowHeight : marginRight;
-		final float spacingBottom = this.position == DkTooltip.Position.TOP ? arrowHeight : marginBottom;
+	private IntRect toSolverRect(Rect rect) {
+		return solverRect.set(rect.left, rect.top, rect.right, rect.bottom);
+	}
 
-		final float left = spacingLeft + myRect.left;
-		final float top = spacingTop + myRect.top;
-		final float right = myRect.right - spacingRight;
-		final float bottom = myRect.bottom - spacingBottom;
-		final float centerX = viewRect.centerX() - getX();
+	static PlacementSolver.Position toSolverPosition(DkTooltip.Position position) {
+		switch (position) {
+			case LEFT:
+				return PlacementSolver.Position.LEFT;
+			case RIGHT:
+				return PlacementSolver.Position.RIGHT;
+			case TOP:
+				return PlacementSolver.Position.TOP;
+		}
+		return PlacementSolver.Position.BOTTOM;
+	}
 
-		final float arrowSourceX = (Arrays.asList(DkTooltip.Position.TOP, DkTooltip.Position.BOTTOM).contains(this.position))
-			? centerX + arrowSourceMargin
-			: centerX;
-		final float arrowTargetX = (Arrays.asList(DkTooltip.Position.TOP, DkTooltip.Position.BOTTOM).contains(this.position))
-			? centerX + arrowTargetMargin
-			: centerX;
-		final float arrowSourceY = (Arrays.asList(DkTooltip.Position.RIGHT, DkTooltip.Position.LEFT).contains(this.position))
-			? bottom / 2f - arrowSourceMargin
-			: bottom / 2f;
-		final float arrowTargetY = (Arrays.asList(DkTooltip.Position.RIGHT, DkTooltip.Position.LEFT).contains(this.position))
-			? bottom / 2f - arrowTargetMargin
-			: bottom / 2f;
+	static DkTooltip.Position fromSolverPosition(PlacementSolver.Position position) {
+		switch (position) {
+			case LEFT:
+				return DkTooltip.Position.LEFT;
+			case RIGHT:
+				return DkTooltip.Position.RIGHT;
+			case TOP:
+				return DkTooltip.Position.TOP;
+		}
+		return DkTooltip.Position.BOTTOM;
+	}
 
-		path.moveTo(left + topLeftDiameter / 2f, top);
-		//LEFT, TOP
+	static PlacementSolver.Align toSolverAlign(DkTooltip.Align align) {
+		switch (align) {
+			case START:
+				return PlacementSolver.Align.START;
+			case END:
+				return PlacementSolver.Align.END;
+		}
+		return PlacementSolver.Align.CENTER;
+	}
 
-		if (position == DkTooltip.Position.BOTTOM) {
-			path.lineTo(arrowSourceX - arrowWidth, top);
-			path.lineTo(arrowTargetX, myRect.top);
-			path.lineTo(arrowSourceX + arrowWidth, top);
+	static DkTooltip.Align fromSolverAlign(PlacementSolver.Align align) {
+		switch (align) {
+			case START:
+				return DkTooltip.Align.START;
+			case END:
+				return DkTooltip.Align.END;
 		}
-		path.lineTo(right - topRightDiameter / 2f, top);
+		return DkTooltip.Align.CENTER;
+	}
 
-		path.quadTo(right, top, right, top + topRightDiameter / 2);
-		//RIGHT, TOP
+	/**
+	 * Measure this tooltip off-window against root bounds and compute final width, alignment
+	 * and translation up front. After that caller should attach this view with exactly
+	 * measured size, and call {@link #setupPremeasured()}, so the tooltip is ready
+	 * to draw on next frame without cancelling any frame.
+	 *
+	 * @param bounds Area where tooltip may be drawn, used to pick side of AUTO position.
+	 * @param obstacles Area occupied by other tooltips, avoided by AUTO position, can be null.
+	 */
+	void premeasure(Rect viewRect, int rootWidth, int rootHeight, Rect bounds, OccupancyGrid obstacles) {
+		this.setupDone = false;
+		this.translationFixed = false;
+		this.premeasured = true;
+		this.viewRect.set(viewRect);
+		this.hasViewRect = true;
+		setupRect.set(viewRect);
+
+		// Padding of AUTO is not applied yet, body size is derived from a measure with arrow of preferred side
+		if (autoPosition) {
+			applyPosition(position);
+		}
+		final int heightSpec = MeasureSpec.makeMeasureSpec(rootHeight, MeasureSpec.AT_MOST);
+		measure(MeasureSpec.makeMeasureSpec(rootWidth, MeasureSpec.AT_MOST), heightSpec);
 
-		if (position == DkTooltip.Position.LEFT) {
-			path.lineTo(right, arrowSourceY - arrowWidth);
-			path.lineTo(myRect.right, arrowTargetY);
-			path.lineTo(right, arrowSourceY + arrowWidth);
+		if (autoPosition) {
+			premeasureAuto(bounds, obstacles);
+			return;
 		}
-		path.lineTo(right, bottom - bottomRightDiameter / 2);
 
-		path.quadTo(right, bottom, right - bottomRightDiameter / 2, bottom);
-		//RIGHT, BOTTOM
+		measureToFit(rootWidth, heightSpec);
+	}
 
-		if (position == DkTooltip.Position.TOP) {
-			path.lineTo(arrowSourceX + arrowWidth, bottom);
-			path.lineTo(arrowTargetX, myRect.bottom);
-			path.lineTo(arrowSourceX - arrowWidth, bottom);
+	/**
+	 * From a measure at most root size, narrow or shift tooltip into root, then place it at measured size.
+	 */
+	private void measureToFit(int rootWidth, int heightSpec) {
+		final int width = getMeasuredWidth();
+		final int fitWidth = fitWidth(setupRect, rootWidth, width);
+		if (fitWidth != width) {
+			measure(MeasureSpec.makeMeasureSpec(Math.max(0, fitWidth), MeasureSpec.EXACTLY), heightSpec);
+		}
+		else if (position == DkTooltip.Position.TOP || position == DkTooltip.Position.BOTTOM) {
+			shiftIntoScreen(setupRect, rootWidth, width);
 		}
-		path.lineTo(left + bottomLeftDiameter / 2, bottom);
 
-		path.quadTo(left, bottom, left, bottom - bottomLeftDiameter / 2);
-		//LEFT, BOTTOM
+		setupPosition(setupRect, getMeasuredWidth(), getMeasuredHeight());
+	}
 
-		if (position == DkTooltip.Position.RIGHT) {
-			path.lineTo(left, arrowSourceY + arrowWidth);
-			path.lineTo(myRect.left, arrowTargetY);
-			path.lineTo(left, arrowSourceY - arrowWidth);
+	/**
+	 * Pick side and alignment from measured size, then measure again at final size. Translation is
+	 * fixed here, so tooltip never needs to be laid out again after attach.
+	 */
+	private void premeasureAuto(Rect bounds, OccupancyGrid obstacles) {
+		final boolean vertical = position == DkTooltip.Position.TOP || position == DkTooltip.Position.BOTTOM;
+		final int bodyWidth = getMeasuredWidth() - (vertical ? 0 : arrowHeight);
+		final int bodyHeight = getMeasuredHeight() - (vertical ? arrowHeight : 0);
+
+		solverBounds.set(bounds.left, bounds.top, bounds.right, bounds.bottom);
+		PlacementSolver.solveAuto(toSolverRect(setupRect), solverBounds, obstacles, bodyWidth, bodyHeight, arrowHeight,
+			distanceWithView, toSolverPosition(position), placement);
+
+		applyPosition(fromSolverPosition(placement.position));
+		setAlign(fromSolverAlign(placement.align));
+		measure(MeasureSpec.makeMeasureSpec(placement.width, MeasureSpec.EXACTLY),
+			MeasureSpec.makeMeasureSpec(placement.height, MeasureSpec.EXACTLY));
+
+		setTranslationX(placement.x);
+		setTranslationY(placement.y);
+		translationFixed = true;
+	}
+
+	/**
+	 * Snapshot this premeasured tooltip into a record which can be drawn by an overlay.
+	 * Only the built-in text content is supported.
+	 */
+	TooltipRecord createRecord() {
+		layout(0, 0, getMeasuredWidth(), getMeasuredHeight());
+		drawBubble(getMeasuredWidth(), getMeasuredHeight());
+
+		final TooltipRecord record = new TooltipRecord();
+		record.translationX = getTranslationX();
+		record.translationY = getTranslationY();
+		record.width = getMeasuredWidth();
+		record.height = getMeasuredHeight();
+		record.anchor.set(viewRect);
+		record.bubblePath = bubblePath;
+		// Own paint is reset when this view is reused, shared paint of style is never changed
+		record.bubblePaint = sharedPaintStyle != null ? bubblePaint : new Paint(bubblePaint);
+		record.borderPaint = borderPaint == ownBorderPaint ? new Paint(borderPaint) : borderPaint;
+		if (withShadow && hasBubble) {
+			record.shadowBitmap = ShadowBitmapCache.obtain(new ShadowBitmapCache.Key(bubbleKey, shadowWidth, shadowColor), bubblePath);
 		}
-		path.lineTo(left, top + topLeftDiameter / 2);
 
-		path.quadTo(left, top, left + topLeftDiameter / 2, top);
+		final Layout textLayout = textView.getLayout();
+		if (textLayout != null) {
+			final TextPaint textPaint = new TextPaint(textView.getPaint());
+			textPaint.setColor(textView.getCurrentTextColor());
+			record.textLayout = newStaticLayout(textPaint, textLayout.getWidth(), textLayout.getAlignment());
+			record.textLeft = textView.getLeft() + textView.getCompoundPaddingLeft();
+			record.textTop = textView.getTop() + textView.getExtendedPaddingTop();
+		}
 
-		path.close();
+		record.clickToHide = clickToHide;
+		record.autoHide = autoHide;
+		record.duration = duration;
+		record.listenerDisplay = listenerDisplay;
+		record.listenerHide = listenerHide;
 
-		return path;
+		return record;
 	}
 
-	public boolean adjustSize(Rect rect, int screenWidth) {
-
-		final Rect r = new Rect();
-		getGlobalVisibleRect(r);
-
-		boolean changed = false;
-		final ViewGroup.LayoutParams layoutParams = getLayoutParams();
-		if (position == DkTooltip.Position.LEFT && getWidth() > rect.left) {
-			layoutParams.width = rect.left - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
-			changed = true;
+	private StaticLayout newStaticLayout(TextPaint textPaint, int width, Layout.Alignment alignment) {
+		final CharSequence text = textView.getText();
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+			return StaticLayout.Builder.obtain(text, 0, text.length(), textPaint, width)
+				.setAlignment(alignment)
+				.setLineSpacing(textView.getLineSpacingExtra(), textView.getLineSpacingMultiplier())
+				.setIncludePad(textView.getIncludeFontPadding())
+				.setBreakStrategy(textView.getBreakStrategy())
+				.setHyphenationFrequency(textView.getHyphenationFrequency())
+				.build();
 		}
-		else if (position == DkTooltip.Position.RIGHT && rect.right + getWidth() > screenWidth) {
-			layoutParams.width = screenWidth - rect.right - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
-			changed = true;
-		}
-		else if (position == DkTooltip.Position.TOP || position == DkTooltip.Position.BOTTOM) {
-			int adjustedLeft = rect.left;
-			int adjustedRight = rect.right;
-
-			if ((rect.centerX() + getWidth() / 2f) > screenWidth) {
-				float diff = (rect.centerX() + getWidth() / 2f) - screenWidth;
+		return newLegacyStaticLayout(text, textPaint, width, alignment);
+	}
 
-				adjustedLeft -= diff;
-				adjustedRight -= diff;
+	@SuppressWarnings("deprecation")
+	private StaticLayout newLegacyStaticLayout(CharSequence text, TextPaint textPaint, int width, Layout.Alignment alignment) {
+		return new StaticLayout(text, textPaint, width, alignment,
+			textView.getLineSpacingMultiplier(), textView.getLineSpacingExtra(), textView.getIncludeFontPadding());
+	}
 
-				setAlign(DkTooltip.Align.CENTER);
-				changed = true;
-			}
-			else if ((rect.centerX() - getWidth() / 2f) < 0) {
-				float diff = -(rect.centerX() - getWidth() / 2f);
+	/**
+	 * @return Built-in text view, or null if custom view is used.
+	 */
+	TextView getTextView() {
+		return childView == textView ? textView : null;
+	}
 
-				adjustedLeft += diff;
-				adjustedRight += diff;
+	boolean hasCustomView() {
+		return childView != textView;
+	}
 
-				setAlign(DkTooltip.Align.CENTER);
-				changed = true;
-			}
+	void setupPremeasured() {
+		getViewTreeObserver().addOnPreDrawListener(premeasuredOnPreDrawListener);
+	}
 
-			if (adjustedLeft < 0) {
-				adjustedLeft = 0;
-			}
+	boolean isSetupDone() {
+		return setupDone;
+	}
 
-			if (adjustedRight > screenWidth) {
-				adjustedRight = screenWidth;
-			}
+	/**
+	 * Follow anchor which moved by given offset: translation, anchor rects (for later reposition)
+	 * and occupied area in host are moved together. Bubble shape is unchanged.
+	 */
+	void moveWithAnchor(int dx, int dy) {
+		setTranslationX(getTranslationX() + dx);
+		setTranslationY(getTranslationY() + dy);
+		viewRect.offset(dx, dy);
+		setupRect.offset(dx, dy);
+		occupyInHost();
+	}
 
-			rect.left = adjustedLeft;
-			rect.right = adjustedRight;
+	private void occupyInHost() {
+		if (getParent() instanceof TooltipHostLayout) {
+			((TooltipHostLayout) getParent()).occupy(this, viewRect);
 		}
-
-		setLayoutParams(layoutParams);
-		postInvalidate();
-		return changed;
 	}
 
 	private void onSetup(Rect myRect) {
-		setupPosition(myRect);
+		if (!translationFixed) {
+			setupPosition(myRect);
+		}
+		setupDone = true;
+		occupyInHost();
 
-		bubblePath = drawBubble(new RectF(shadowPadding, shadowPadding, getWidth() - shadowPadding * 2f, getHeight() - shadowPadding * 2f), corner, corner, corner, corner);
+		drawBubble(getWidth(), getHeight());
 		startEnterAnimation();
 
 		handleAutoRemove();
 	}
 
 	public void setup(final Rect viewRect, int screenWidth) {
-		this.viewRect = new Rect(viewRect);
-		final Rect myRect = new Rect(viewRect);
-
-		final boolean changed = adjustSize(myRect, screenWidth);
-		if (!changed) {
-			onSetup(myRect);
+		final boolean traced = TooltipTrace.begin("TooltipView.setup");
+		try {
+			this.setupDone = false;
+			this.translationFixed = false;
+			this.premeasured = false;
+			this.viewRect.set(viewRect);
+			this.hasViewRect = true;
+			setupRect.set(viewRect);
+
+			final boolean changed = adjustSize(setupRect, screenWidth);
+			if (!changed) {
+				onSetup(setupRect);
+			}
+			else {
+				getViewTreeObserver().addOnPreDrawListener(setupOnPreDrawListener);
+			}
 		}
-		else {
-			getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-				@Override
-				public boolean onPreDraw() {
-					onSetup(myRect);
-					getViewTreeObserver().removeOnPreDrawListener(this);
-					return false;
-				}
-			});
+		finally {
+			TooltipTrace.end(traced);
 		}
 	}
 
@@ -515,32 +1411,69 @@ public class TooltipView extends FrameLayout {
 		remove();
 	}
 
+	void cancelAnimations() {
+		animate().setListener(null).cancel();
+		endAnimationFrame();
+		pendingExitListener = null;
+	}
+
 	public void removeNow() {
+		// Pending work must not fire into a removed (maybe dead) window
+		removeCallbacks(autoRemoveRunnable);
+		getViewTreeObserver().removeOnPreDrawListener(setupOnPreDrawListener);
+		getViewTreeObserver().removeOnPreDrawListener(premeasuredOnPreDrawListener);
+		endAnimationFrame();
+		final DkTooltip owner = this.owner;
+		this.owner = null;
+		if (owner != null) {
+			owner.onRemoved();
+		}
+
 		if (getParent() != null) {
 			final ViewGroup parent = ((ViewGroup) getParent());
 			parent.removeView(TooltipView.this);
 		}
+		reportMetrics();
+		if (pool != null) {
+			pool.release(this);
+		}
 	}
 
 	public void closeNow() {
 		removeNow();
 	}
 
-	public void setWithShadow(boolean withShadow) {
-		if (withShadow) {
-			bubblePaint.setShadowLayer(shadowWidth, 0, 0, shadowColor);
-		}
-		else {
-			bubblePaint.setShadowLayer(0, 0, 0, Color.TRANSPARENT);
+	/**
+	 * Give this never attached view back to its pool right away, used once its content was snapshot into a record.
+	 */
+	void recycle() {
+		owner = null;
+		if (pool != null) {
+			pool.release(this);
 		}
 	}
 
+	public void setWithShadow(boolean withShadow) {
+		this.withShadow = withShadow;
+		applyShadow();
+	}
+
 	public void setDistanceWithView(int distanceWithView) {
 		this.distanceWithView = distanceWithView;
+		onGeometryChanged();
+	}
+
+	/**
+	 * Draws border with own paint of this view, so changing border does not allocate.
+	 */
+	public void setBorder(int color, float width) {
+		ownBorderPaint.setColor(color);
+		ownBorderPaint.setStrokeWidth(width);
+		setBorderPaint(ownBorderPaint);
 	}
 
 	public void setBorderPaint(Paint borderPaint) {
 		this.borderPaint = borderPaint;
-		postInvalidate();
+		onAppearanceChanged();
 	}
-}
\ No newline at end of file
+}
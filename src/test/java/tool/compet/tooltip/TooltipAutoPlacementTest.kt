@@ -0,0 +1,71 @@
+package tool.compet.tooltip
+
+import android.app.Activity
+import android.graphics.Rect
+import android.view.Gravity
+import android.view.View
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.LooperMode
+import org.robolectric.shadows.ShadowLooper
+import java.util.concurrent.TimeUnit
+
+import org.junit.Assert.*
+
+/**
+ * AUTO tooltips avoid bubbles of tooltips which are already shown, even when those are not drawn yet.
+ */
+@RunWith(RobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class TooltipAutoPlacementTest {
+    @Test
+    fun autoTooltipsShownBackToBack_doNotOverlap() {
+        val activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        val root = FrameLayout(activity)
+        val anchor = View(activity)
+        root.addView(anchor, FrameLayout.LayoutParams(ANCHOR_SIZE, ANCHOR_SIZE, Gravity.CENTER))
+        activity.setContentView(root, ViewGroup.LayoutParams(ROOT_WIDTH, ROOT_HEIGHT))
+        ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS)
+
+        // No frame runs between both shows, so second one only knows first one from occupancy
+        val first = newAutoTooltip(activity, root, anchor).show()
+        val second = newAutoTooltip(activity, root, anchor).show()
+        ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS)
+
+        assertNotNull(first)
+        assertNotNull(second)
+        val firstBounds = boundsOf(first!!)
+        val secondBounds = boundsOf(second!!)
+        assertFalse("first $firstBounds was empty", firstBounds.isEmpty)
+        assertFalse("second $secondBounds was empty", secondBounds.isEmpty)
+        assertFalse(
+            "first $firstBounds and second $secondBounds overlap",
+            Rect.intersects(firstBounds, secondBounds)
+        )
+    }
+
+    private fun newAutoTooltip(activity: Activity, root: View, anchor: View): DkTooltip {
+        return DkTooltip.on(activity, root, anchor)
+            .text(TEXT)
+            .position(DkTooltip.Position.AUTO)
+            .autoHide(false)
+    }
+
+    private fun boundsOf(view: View): Rect {
+        val left = view.x.toInt()
+        val top = view.y.toInt()
+        return Rect(left, top, left + view.width, top + view.height)
+    }
+
+    companion object {
+        private const val ROOT_WIDTH = 1080
+        private const val ROOT_HEIGHT = 1920
+        private const val ANCHOR_SIZE = 100
+        private const val FRAME_MILLIS = 16L
+        private const val TEXT = "Tooltip"
+    }
+}
@@ -0,0 +1,293 @@
+package tool.compet.tooltip
+
+import android.animation.Animator
+import android.animation.ValueAnimator
+import android.app.Activity
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.view.View
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.ParameterizedRobolectricTestRunner
+import org.robolectric.Robolectric
+import org.robolectric.annotation.LooperMode
+import org.robolectric.shadows.ShadowLooper
+import java.util.concurrent.TimeUnit
+
+import org.junit.Assert.*
+
+/**
+ * Counts measure, layout, cancelled pre-draw and draw passes (on root and on tooltip), and also
+ * allocation events (tooltip view construction, html parse, bubble path build) while a tooltip is shown and closed.
+ * Every count is pinned per mode, position, align and clamp: a change which makes any of them differ
+ * from the expected count below fails, so update the expectation when a change improves it.
+ */
+@RunWith(ParameterizedRobolectricTestRunner::class)
+@LooperMode(LooperMode.Mode.PAUSED)
+class TooltipPassCountTest(
+    private val mode: Mode,
+    private val position: DkTooltip.Position,
+    private val align: DkTooltip.Align,
+    private val clamped: Boolean
+) {
+    enum class Mode {
+        SETUP,
+        PREMEASURE,
+        BATCHED
+    }
+
+    /**
+     * Exact passes of one show and close, see DkTooltip.attachTooltip(), TooltipView.setup() and TooltipView.premeasure().
+     */
+    private class Budget(val tooltipMeasure: Int, val tooltipLayout: Int, val cancelledPreDraw: Int)
+
+    private class CountingFrameLayout(context: Context) : FrameLayout(context) {
+        var measureCount = 0
+        var layoutCount = 0
+        var drawCount = 0
+
+        override fun onMeasure(widthMeasureSpec: Int, heightMeasureSpec: Int) {
+            ++measureCount
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec)
+        }
+
+        override fun onLayout(changed: Boolean, left: Int, top: Int, right: Int, bottom: Int) {
+            ++layoutCount
+            super.onLayout(changed, left, top, right, bottom)
+        }
+
+        override fun draw(canvas: Canvas) {
+            ++drawCount
+            super.draw(canvas)
+        }
+
+        fun resetCounts() {
+            measureCount = 0
+            layoutCount = 0
+            drawCount = 0
+        }
+    }
+
+    // Finishes immediately so pass counts do not depend on animation frames
+    private object InstantAnimation : DkTooltip.TooltipAnimation {
+        override fun animateEnter(view: View, animatorListener: Animator.AnimatorListener) {
+            animatorListener.onAnimationEnd(ValueAnimator.ofInt(0))
+        }
+
+        override fun animateExit(view: View, animatorListener: Animator.AnimatorListener) {
+            animatorListener.onAnimationEnd(ValueAnimator.ofInt(0))
+        }
+    }
+
+    private lateinit var activity: Activity
+    private lateinit var root: CountingFrameLayout
+    private lateinit var anchor: View
+    private lateinit var canvas: Canvas
+
+    @Test
+    fun showAndClose_matchesPinnedPassCounts() {
+        setUpWindow()
+
+        val pathMissBefore = DkTooltip.getPathCacheMissCount()
+        val metrics = showAndClose()
+        val pathMisses = DkTooltip.getPathCacheMissCount() - pathMissBefore
+
+        // Host (and overlay) is added to root once, later changes of tooltips are absorbed by the host
+        assertPinned("root measure", root.measureCount, ROOT_MEASURE)
+        assertPinned("root layout", root.layoutCount, ROOT_LAYOUT)
+        assertPinned("root draw", root.drawCount, ROOT_DRAW)
+        assertPinned("path build", pathMisses, PATH_BUILD)
+
+        // Batched tooltip has no view of its own
+        if (mode == Mode.BATCHED) {
+            return
+        }
+
+        assertNotNull("metrics were not reported: $this", metrics)
+        metrics!!
+        val budget = budget()
+
+        assertPinned("tooltip measure", metrics.measureCount, budget.tooltipMeasure)
+        assertPinned("tooltip layout", metrics.layoutCount, budget.tooltipLayout)
+        assertPinned("tooltip draw", metrics.drawCount, TOOLTIP_DRAW)
+        assertPinned("cancelled pre-draw", metrics.cancelledPreDrawCount, budget.cancelledPreDraw)
+        assertPinned("bubble rebuild", metrics.bubbleRebuildCount, BUBBLE_REBUILD)
+        assertTrue("tooltip was never drawn: $this", metrics.drawCount > 0)
+    }
+
+    @Test
+    fun showAgain_allocatesNothing() {
+        setUpWindow()
+        showAndClose()
+
+        val pool = DkTooltip.getPool(activity)
+        val obtainBefore = pool.obtainCount
+        val reuseBefore = pool.reuseCount
+        val htmlMissBefore = DkTooltip.getHtmlCacheMissCount()
+        val pathMissBefore = DkTooltip.getPathCacheMissCount()
+
+        showAndClose()
+
+        val constructed = (pool.obtainCount - obtainBefore) - (pool.reuseCount - reuseBefore)
+        assertEquals("tooltip view was constructed instead of reused: $this", 0, constructed)
+        assertEquals("html was parsed again: $this", 0, DkTooltip.getHtmlCacheMissCount() - htmlMissBefore)
+        assertEquals("bubble path was built again: $this", 0, DkTooltip.getPathCacheMissCount() - pathMissBefore)
+    }
+
+    @Test
+    fun batchedShow_returnsViewToPoolRightAway() {
+        if (mode != Mode.BATCHED) {
+            return
+        }
+        setUpWindow()
+        showAndClose()
+
+        val pool = DkTooltip.getPool(activity)
+        val idleBefore = pool.size()
+        val tooltip = newTooltip(null)
+        tooltip.show()
+
+        // Record draws the tooltip, so its view is already back (as the only view in use)
+        assertEquals("view of batched tooltip was kept: $this", idleBefore, pool.size())
+        tooltip.close()
+        pumpFrames()
+    }
+
+    private fun setUpWindow() {
+        // Process-wide caches would be warm from previous parameters otherwise
+        BubblePathCache.clear()
+        HtmlCache.clear()
+        ShadowBitmapCache.clear()
+
+        activity = Robolectric.buildActivity(Activity::class.java).setup().get()
+        root = CountingFrameLayout(activity)
+        anchor = View(activity)
+        root.addView(anchor, anchorLayoutParams())
+        activity.setContentView(root, ViewGroup.LayoutParams(ROOT_WIDTH, ROOT_HEIGHT))
+        canvas = Canvas(Bitmap.createBitmap(ROOT_WIDTH, ROOT_HEIGHT, Bitmap.Config.ARGB_8888))
+        pumpFrames()
+        root.resetCounts()
+    }
+
+    /**
+     * Anchor at screen center fits every tooltip, anchor near a border forces fitWidth (LEFT/RIGHT)
+     * or shiftIntoScreen (TOP/BOTTOM) of adjustSize.
+     */
+    private fun anchorLayoutParams(): FrameLayout.LayoutParams {
+        val params = FrameLayout.LayoutParams(ANCHOR_SIZE, ANCHOR_SIZE)
+        params.topMargin = (ROOT_HEIGHT - ANCHOR_SIZE) / 2
+        params.leftMargin = when {
+            !clamped -> (ROOT_WIDTH - ANCHOR_SIZE) / 2
+            position == DkTooltip.Position.LEFT -> BORDER_GAP
+            position == DkTooltip.Position.RIGHT -> ROOT_WIDTH - ANCHOR_SIZE - BORDER_GAP
+            else -> 0
+        }
+        return params
+    }
+
+    private fun showAndClose(): TooltipMetrics? {
+        var metrics: TooltipMetrics? = null
+        val tooltip = newTooltip { metrics = it }
+        tooltip.show()
+        pumpFrames()
+        tooltip.close()
+        pumpFrames()
+        return metrics
+    }
+
+    private fun newTooltip(metricsListener: DkTooltip.ListenerMetrics?): DkTooltip {
+        val tooltip = DkTooltip.on(activity, root, anchor)
+            .text(TEXT)
+            .position(position)
+            .align(align)
+            .animation(InstantAnimation)
+            .autoHide(false)
+            .pooled(true)
+            .premeasure(mode == Mode.PREMEASURE)
+            .batched(mode == Mode.BATCHED)
+        if (metricsListener != null) {
+            tooltip.metrics(metricsListener)
+        }
+        return tooltip
+    }
+
+    private fun budget(): Budget {
+        // AUTO is always premeasured
+        if (position == DkTooltip.Position.AUTO) {
+            return AUTO_BUDGET
+        }
+        val fitWidth = clamped && (position == DkTooltip.Position.LEFT || position == DkTooltip.Position.RIGHT)
+        return when (mode) {
+            Mode.PREMEASURE -> if (fitWidth) PREMEASURE_FIT_WIDTH_BUDGET else PREMEASURE_BUDGET
+            else -> if (clamped) SETUP_CLAMPED_BUDGET else SETUP_BUDGET
+        }
+    }
+
+    /**
+     * Runs frames like a real device would: traversal (measure, layout, pre-draw) by Choreographer,
+     * then a software draw of the window only when something was invalidated.
+     */
+    private fun pumpFrames() {
+        repeat(FRAMES) {
+            ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS)
+            val decorView = activity.window.decorView
+            if (decorView.isDirty) {
+                decorView.draw(canvas)
+            }
+        }
+    }
+
+    private fun assertPinned(name: String, actual: Int, budget: Int) {
+        assertEquals("$name count differs from pinned count: $this", budget.toLong(), actual.toLong())
+    }
+
+    override fun toString(): String {
+        return "mode=$mode, position=$position, align=$align, clamped=$clamped"
+    }
+
+    companion object {
+        private const val ROOT_WIDTH = 1080
+        private const val ROOT_HEIGHT = 1920
+        private const val ANCHOR_SIZE = 100
+        private const val BORDER_GAP = 40
+        private const val FRAMES = 10
+        private const val FRAME_MILLIS = 16L
+        private const val TEXT = "Tooltip"
+
+        // Counts of one show and close, same for every mode, position, align and clamp
+        private const val ROOT_MEASURE = 1
+        private const val ROOT_LAYOUT = 1
+        private const val ROOT_DRAW = 2
+        private const val TOOLTIP_DRAW = 1
+        private const val BUBBLE_REBUILD = 1
+        private const val PATH_BUILD = 1
+
+        // Measured by host, then again after adjustSize() whose new layout params cancel first frame
+        private val SETUP_BUDGET = Budget(tooltipMeasure = 2, tooltipLayout = 2, cancelledPreDraw = 1)
+        // Adjusted size is set up on next pre-draw, which is cancelled too
+        private val SETUP_CLAMPED_BUDGET = Budget(tooltipMeasure = 2, tooltipLayout = 2, cancelledPreDraw = 2)
+        // Measured off-window, then by host at exact size, so attached and drawn in one frame
+        private val PREMEASURE_BUDGET = Budget(tooltipMeasure = 2, tooltipLayout = 1, cancelledPreDraw = 0)
+        private val PREMEASURE_FIT_WIDTH_BUDGET = Budget(tooltipMeasure = 3, tooltipLayout = 1, cancelledPreDraw = 0)
+        // Measured for preferred side, at size of picked side, then by host
+        private val AUTO_BUDGET = Budget(tooltipMeasure = 3, tooltipLayout = 1, cancelledPreDraw = 0)
+
+        @JvmStatic
+        @ParameterizedRobolectricTestRunner.Parameters(name = "{0} {1} {2} clamped={3}")
+        fun parameters(): List<Array<Any>> {
+            val parameters = ArrayList<Array<Any>>()
+            for (mode in Mode.values()) {
+                for (position in DkTooltip.Position.values()) {
+                    for (align in DkTooltip.Align.values()) {
+                        parameters.add(arrayOf(mode, position, align, false))
+                        parameters.add(arrayOf(mode, position, align, true))
+                    }
+                }
+            }
+            return parameters
+        }
+    }
+}